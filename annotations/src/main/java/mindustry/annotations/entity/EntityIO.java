@@ -137,36 +137,141 @@ public class EntityIO{
 
             //add code for reading revision
             for(RevisionField field : rev.fields){
-                Svar var = allFields.find(s -> s.name().equals(field.name));
-                boolean sf = var.has(SyncField.class), sl = var.has(SyncLocal.class);
+                readSyncField(field, allFields);
+            }
 
-                if(sl) cont("if(!islocal)");
+            st("afterSync()");
+        }
+    }
 
-                if(sf){
-                    st(field.name + lastSuf + " = this." + field.name);
-                }
+    /**
+     * Generates delta-encoded sync I/O. The writer compares every field that can be represented as raw bits against the connection's baseline,
+     * and only writes fields that changed, prefixed by a bitmask. Fields that cannot be compared cheaply (collections, controllers) are always written.
+     */
+    void writeSyncDelta(MethodSpec.Builder method, boolean write, Seq<Svar> allFields) throws Exception{
+        this.method = method;
+        this.write = write;
+
+        Seq<RevisionField> fields = revisions.peek().fields;
+        if(fields.size > 64){
+            BaseProcessor.err("Entity type '" + name + "' has more than 64 fields, which cannot be delta-encoded.");
+            return;
+        }
 
-                io(field.type, "this." + (sf ? field.name + targetSuf : field.name) + " = ");
+        //masks are written as ints when possible to save space
+        boolean wide = fields.size > 32;
 
-                if(sl){
-                    ncont("else" );
+        if(write){
+            cont("if(baseline.values.length != $L)", fields.size);
+            st("baseline.values = new long[$L]", fields.size);
+            st("baseline.invalid = true");
+            econt();
 
-                    io(field.type, "");
+            st("long[] BASE = baseline.values");
+            st("boolean FULL = baseline.invalid");
+            st("baseline.invalid = false");
+            st("long DELTA_MASK = 0L");
+            st("long DELTA_BITS");
 
-                    //just assign the two values so jumping does not occur on de-possession
-                    if(sf){
-                        st(field.name + lastSuf + " = this." + field.name);
-                        st(field.name + targetSuf + " = this." + field.name);
-                    }
+            for(int i = 0; i < fields.size; i++){
+                RevisionField field = fields.get(i);
+                String bits = deltaBits(field.type, "this." + field.name);
 
+                if(bits == null){
+                    //untracked fields are always sent
+                    st("DELTA_MASK |= $L", (1L << i) + "L");
+                }else{
+                    st("DELTA_BITS = $L", bits);
+                    cont("if(FULL || BASE[$L] != DELTA_BITS)", i);
+                    st("DELTA_MASK |= $L", (1L << i) + "L");
+                    st("BASE[$L] = DELTA_BITS", i);
                     econt();
                 }
             }
 
+            st(wide ? "write.l(DELTA_MASK)" : "write.i((int)DELTA_MASK)");
+
+            for(int i = 0; i < fields.size; i++){
+                RevisionField field = fields.get(i);
+                cont("if((DELTA_MASK & $L) != 0L)", (1L << i) + "L");
+                io(field.type, "this." + field.name);
+                econt();
+            }
+        }else{
+            st(wide ? "long DELTA_MASK = read.l()" : "long DELTA_MASK = read.i() & 0xFFFFFFFFL");
+
+            //base read code
+            st("if(lastUpdated != 0) updateSpacing = $T.timeSinceMillis(lastUpdated)", Time.class);
+            st("lastUpdated = $T.millis()", Time.class);
+            st("boolean islocal = isLocal()");
+
+            for(int i = 0; i < fields.size; i++){
+                RevisionField field = fields.get(i);
+                Svar var = allFields.find(s -> s.name().equals(field.name));
+
+                cont("if((DELTA_MASK & $L) != 0L)", (1L << i) + "L");
+                readSyncField(field, allFields);
+                if(var.has(SyncField.class)){
+                    //unchanged interpolated fields keep their target, but restart interpolation from the current value
+                    ncont("else");
+                    st(field.name + lastSuf + " = this." + field.name);
+                }
+                econt();
+            }
+
             st("afterSync()");
         }
     }
 
+    /** @return an expression for the raw bits of a field, used for delta comparison; null if the type cannot be compared this way. */
+    private @Nullable String deltaBits(String type, String field){
+        type = type.replace("mindustry.gen.", "");
+        type = replacements.get(type, type);
+
+        switch(type){
+            case "float": return "Float.floatToRawIntBits(" + field + ")";
+            case "double": return "Double.doubleToRawLongBits(" + field + ")";
+            case "boolean": return "(" + field + " ? 1L : 0L)";
+            case "byte": case "short": case "int": case "long": case "char": return field;
+            case "mindustry.game.Team": return "(" + field + " == null ? -1 : " + field + ".id)";
+            case "mindustry.world.Tile": return "(" + field + " == null ? -1 : " + field + ".pos())";
+        }
+
+        if(instanceOf(type, "mindustry.ctype.Content")){
+            return "(" + field + " == null ? -1 : " + field + ".id)";
+        }
+
+        return null;
+    }
+
+    /** Generates code to read a single synced field. Used by both full and delta sync reading. */
+    private void readSyncField(RevisionField field, Seq<Svar> allFields) throws Exception{
+        Svar var = allFields.find(s -> s.name().equals(field.name));
+        boolean sf = var.has(SyncField.class), sl = var.has(SyncLocal.class);
+
+        if(sl) cont("if(!islocal)");
+
+        if(sf){
+            st(field.name + lastSuf + " = this." + field.name);
+        }
+
+        io(field.type, "this." + (sf ? field.name + targetSuf : field.name) + " = ");
+
+        if(sl){
+            ncont("else" );
+
+            io(field.type, "");
+
+            //just assign the two values so jumping does not occur on de-possession
+            if(sf){
+                st(field.name + lastSuf + " = this." + field.name);
+                st(field.name + targetSuf + " = this." + field.name);
+            }
+
+            econt();
+        }
+    }
+
     void writeSyncManual(MethodSpec.Builder method, boolean write, Seq<Svar> syncFields) throws Exception{
         this.method = method;
         this.write = write;
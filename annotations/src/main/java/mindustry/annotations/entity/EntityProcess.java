@@ -438,7 +438,13 @@ public class EntityProcess extends BaseProcessor{
 
                         for(GroupDefinition def : groups){
                             //remove/add from each group, assume imported
-                            mbuilder.addStatement("Groups.$L.$L(this)", def.name, first.name());
+                            if(first.name().equals("add")){
+                                mbuilder.addStatement("Groups.$L.add(this)", def.name);
+                            }else{
+                                //removal uses the stored index, which the group keeps up to date through setIndex__group
+                                mbuilder.addStatement("Groups.$L.removeIndex(this, index__$L)", def.name, def.name);
+                                mbuilder.addStatement("index__$L = -1", def.name);
+                            }
                         }
                     }
 
@@ -454,6 +460,11 @@ public class EntityProcess extends BaseProcessor{
                             io.writeSync(mbuilder, first.name().equals("writeSync"), syncedFields, allFields);
                         }
 
+                        //SPECIAL CASE: delta-encoded sync I/O code
+                        if((first.name().equals("readSyncDelta") || first.name().equals("writeSyncDelta"))){
+                            io.writeSyncDelta(mbuilder, first.name().equals("writeSyncDelta"), allFields);
+                        }
+
                         //SPECIAL CASE: sync I/O code for writing to/from a manual buffer
                         if((first.name().equals("readSyncManual") || first.name().equals("writeSyncManual"))){
                             io.writeSyncManual(mbuilder, first.name().equals("writeSyncManual"), syncedFields);
@@ -552,6 +563,16 @@ public class EntityProcess extends BaseProcessor{
                     builder.addMethod(resetBuilder.build());
                 }
 
+                //add the index of this entity in each of its groups, used for constant-time removal
+                for(GroupDefinition def : groups){
+                    builder.addSuperinterface(ClassName.get(packageName, "IndexableEntity__" + def.name));
+                    builder.addField(FieldSpec.builder(TypeName.INT, "index__" + def.name, Modifier.PRIVATE, Modifier.TRANSIENT).initializer("-1").build());
+                    builder.addMethod(MethodSpec.methodBuilder("setIndex__" + def.name).addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addParameter(TypeName.INT, "index")
+                        .addStatement("index__$L = index", def.name).build());
+                }
+
                 //make constructor private
                 builder.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PROTECTED).build());
 
@@ -576,6 +597,11 @@ public class EntityProcess extends BaseProcessor{
                     ClassName.bestGuess("mindustry.entities.EntityGroup"), itype), group.name, Modifier.PUBLIC, Modifier.STATIC);
 
                 groupInit.addStatement("$L = new $T<>($L.class, $L, $L)", group.name, groupc, itype, group.spatial, group.mapping);
+                groupInit.addStatement("$L.setIndexer((e, i) -> (($L)e).setIndex__$L(i))", group.name, "IndexableEntity__" + group.name, group.name);
+
+                //interface for entities that store their index in this group
+                write(TypeSpec.interfaceBuilder("IndexableEntity__" + group.name).addModifiers(Modifier.PUBLIC)
+                    .addMethod(MethodSpec.methodBuilder("setIndex__" + group.name).addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT).addParameter(TypeName.INT, "index").build()));
             }
 
             //write the groups
@@ -90,7 +90,7 @@ public class BaseAI{
             }else{
                 var field = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
 
-                int[][] weights = field.weights;
+                int[] weights = field.weights;
                 for(int i = 0; i < pathStep; i++){
                     int minCost = Integer.MAX_VALUE;
                     int cx = calcTile.x, cy = calcTile.y;
@@ -99,8 +99,8 @@ public class BaseAI{
                         int nx = cx + p.x, ny = cy + p.y;
 
                         Tile other = world.tile(nx, ny);
-                        if(other != null && weights[nx][ny] < minCost && weights[nx][ny] != -1){
-                            minCost = weights[nx][ny];
+                        if(other != null && weights[nx + ny * field.width] < minCost && weights[nx + ny * field.width] != -1){
+                            minCost = weights[nx + ny * field.width];
                             calcTile = other;
                             foundAny = true;
                         }
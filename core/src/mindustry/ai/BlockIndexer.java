@@ -29,16 +29,22 @@ public class BlockIndexer{
 
     /** Set of all ores that are being scanned. */
     private final ObjectSet<Item> scanOres = new ObjectSet<>();
-    private final IntSet intSet = new IntSet();
     private final ObjectSet<Item> itemSet = new ObjectSet<>();
     /** Stores all ore quadtrants on the map. */
     private ObjectMap<Item, TileArray> ores = new ObjectMap<>();
-    /** Maps each team ID to a quarant. A quadrant is a grid of bits, where each bit is set if and only if there is a block of that team in that quadrant. */
-    private GridBits[] structQuadrants;
+    /** Maps each team ID to its buildings, bucketed by the quadrant of their center tile. Each building is stored once, regardless of size. */
+    private Seq<Building>[][] buildingQuadrants = new Seq[Team.all.length][];
+    /** Maps center tile positions to the building indexed there. */
+    private IntMap<BuildingIndex> buildingMap = new IntMap<>();
+    /** Size of the largest building indexed since the last load, in tiles. Queries are expanded by this. */
+    private int maxBuildingSize = 1;
     /** Stores all damaged tile entities by team. */
     private ObjectSet<Building>[] damagedTiles = new ObjectSet[Team.all.length];
     /** All ores available on this map. */
     private ObjectSet<Item> allOres = new ObjectSet<>();
+    /** Ore data of the map being loaded, scanned by the load pipeline. */
+    private ObjectMap<Item, TileArray> loadOres = new ObjectMap<>();
+    private ObjectSet<Item> loadAllOres = new ObjectSet<>();
     /** Stores teams that are present here as tiles. */
     private Seq<Team> activeTeams = new Seq<>(Team.class);
     /** Maps teams to a map of flagged tiles by flag. */
@@ -59,9 +65,7 @@ public class BlockIndexer{
             updateIndices(event.tile);
         });
 
-        Events.on(WorldLoadEvent.class, event -> {
-            scanOres.clear();
-            scanOres.addAll(Item.getAllOres());
+        world.loadPipeline.add("indexer", () -> {
             damagedTiles = new ObjectSet[Team.all.length];
             flagMap = new TileArray[Team.all.length][BlockFlag.all.length];
             unitCaps = new int[Team.all.length];
@@ -74,29 +78,38 @@ public class BlockIndexer{
             }
 
             typeMap.clear();
-            allOres.clear();
+            //ore quadrants are scanned separately, and assigned when the world is loaded
             ores = null;
 
-            //create bitset for each team type that contains each quadrant
-            structQuadrants = new GridBits[Team.all.length];
+            buildingQuadrants = new Seq[Team.all.length][];
+            buildingMap.clear();
+            maxBuildingSize = 1;
 
             for(Tile tile : world.tiles){
                 process(tile);
+                updateBuildingIndex(tile);
 
                 if(tile.build != null && tile.build.damaged()){
                     notifyTileDamaged(tile.build);
                 }
-
-                if(tile.drop() != null) allOres.add(tile.drop());
             }
+        });
 
-            for(int x = 0; x < quadWidth(); x++){
-                for(int y = 0; y < quadHeight(); y++){
-                    updateQuadrant(world.tile(x * quadrantSize, y * quadrantSize));
-                }
+        world.loadPipeline.add("ores", () -> {
+            scanOres.clear();
+            scanOres.addAll(Item.getAllOres());
+
+            loadAllOres = new ObjectSet<>();
+            for(Tile tile : world.tiles){
+                if(tile.drop() != null) loadAllOres.add(tile.drop());
             }
 
-            scanOres();
+            loadOres = scanOres();
+        });
+
+        Events.on(WorldLoadEvent.class, event -> {
+            ores = loadOres;
+            allOres = loadAllOres;
         });
     }
 
@@ -112,34 +125,13 @@ public class BlockIndexer{
             }
         }
         process(tile);
-        updateQuadrant(tile);
+        updateBuildingIndex(tile);
     }
 
     private TileArray[] getFlagged(Team team){
         return flagMap[team.id];
     }
 
-    private GridBits structQuadrant(Team t){
-        if(structQuadrants[t.id] == null){
-            structQuadrants[t.id] = new GridBits(Mathf.ceil(world.width() / (float)quadrantSize), Mathf.ceil(world.height() / (float)quadrantSize));
-        }
-        return structQuadrants[t.id];
-    }
-
-    /** Updates all the structure quadrants for a newly activated team. */
-    public void updateTeamIndex(Team team){
-        if(structQuadrants == null) return;
-
-        //go through every tile... ouch
-        for(Tile tile : world.tiles){
-            if(tile.team() == team){
-                int quadrantX = tile.x / quadrantSize;
-                int quadrantY = tile.y / quadrantSize;
-                structQuadrant(team).set(quadrantX, quadrantY);
-            }
-        }
-    }
-
     /** @return whether this item is present on this map. */
     public boolean hasOre(Item item){
         return allOres.contains(item);
@@ -181,26 +173,85 @@ public class BlockIndexer{
         return eachBlock(team.team(), team.getX(), team.getY(), range, pred, cons);
     }
 
-    public boolean eachBlock(Team team, float wx, float wy, float range, Boolf<Building> pred, Cons<Building> cons){
-        intSet.clear();
-
-        int tx = World.toTile(wx);
-        int ty = World.toTile(wy);
+    /**
+     * Calls the consumer for each building with a tile within range of the position.
+     * @param team the team of the buildings, or null for buildings of any team.
+     * @return whether any building was found.
+     */
+    public boolean eachBlock(@Nullable Team team, float wx, float wy, float range, Boolf<Building> pred, Cons<Building> cons){
+        if(team != null){
+            return eachBlock(buildingQuadrants[team.id], wx, wy, range, pred, cons);
+        }
 
-        int tileRange = (int)(range / tilesize + 1);
         boolean any = false;
+        for(Seq<Building>[] quadrants : buildingQuadrants){
+            any |= eachBlock(quadrants, wx, wy, range, pred, cons);
+        }
+        return any;
+    }
 
-        for(int x = -tileRange + tx; x <= tileRange + tx; x++){
-            for(int y = -tileRange + ty; y <= tileRange + ty; y++){
-                if(!Mathf.within(x * tilesize, y * tilesize, wx, wy, range)) continue;
+    private boolean eachBlock(@Nullable Seq<Building>[] quadrants, float wx, float wy, float range, Boolf<Building> pred, Cons<Building> cons){
+        if(quadrants == null) return false;
 
-                Building other = world.build(x, y);
+        boolean any = false;
+        float pad = (maxBuildingSize / 2 + 1) * tilesize;
+        int minx = quadX(wx - range - pad), miny = quadY(wy - range - pad), maxx = quadX(wx + range + pad), maxy = quadY(wy + range + pad), qwidth = quadWidth();
+        //nearest tile coordinates to the center; the nearest tile of a building is found by clamping these to its bounds
+        int tx = Math.round(wx / tilesize), ty = Math.round(wy / tilesize);
+
+        for(int qy = miny; qy <= maxy; qy++){
+            for(int qx = minx; qx <= maxx; qx++){
+                Seq<Building> quadrant = quadrants[qx + qy * qwidth];
+                if(quadrant == null) continue;
+
+                //iterate backwards, so buildings destroyed by the consumer do not cause others to be skipped
+                for(int i = quadrant.size - 1; i >= 0; i--){
+                    if(i >= quadrant.size) continue;
+                    Building other = quadrant.items[i];
+                    int offset = -(other.block.size - 1) / 2;
+                    int minTileX = other.tile.x + offset, minTileY = other.tile.y + offset;
+                    int nx = Mathf.clamp(tx, minTileX, minTileX + other.block.size - 1), ny = Mathf.clamp(ty, minTileY, minTileY + other.block.size - 1);
+
+                    if(Mathf.within(nx * tilesize, ny * tilesize, wx, wy, range) && pred.get(other)){
+                        cons.get(other);
+                        any = true;
+                    }
+                }
+            }
+        }
 
-                if(other == null) continue;
+        return any;
+    }
 
-                if((team == null || other.team == team) && pred.get(other) && intSet.add(other.pos())){
-                    cons.get(other);
-                    any = true;
+    /**
+     * Calls the consumer for each building that overlaps the rectangle, in world units.
+     * @param team the team of the buildings, or null for buildings of any team.
+     * @return whether any building was found.
+     */
+    public boolean eachBlock(@Nullable Team team, Rect rect, Boolf<Building> pred, Cons<Building> cons){
+        boolean any = false;
+        float pad = (maxBuildingSize / 2 + 1) * tilesize;
+        int minx = quadX(rect.x - pad), miny = quadY(rect.y - pad), maxx = quadX(rect.x + rect.width + pad), maxy = quadY(rect.y + rect.height + pad), qwidth = quadWidth();
+
+        for(int t = team == null ? 0 : team.id; t < (team == null ? buildingQuadrants.length : team.id + 1); t++){
+            Seq<Building>[] quadrants = buildingQuadrants[t];
+            if(quadrants == null) continue;
+
+            for(int qy = miny; qy <= maxy; qy++){
+                for(int qx = minx; qx <= maxx; qx++){
+                    Seq<Building> quadrant = quadrants[qx + qy * qwidth];
+                    if(quadrant == null) continue;
+
+                    for(int i = quadrant.size - 1; i >= 0; i--){
+                        if(i >= quadrant.size) continue;
+                        Building other = quadrant.items[i];
+                        float size = other.block.size * tilesize;
+
+                        if(rect.overlaps(other.x - size / 2f, other.y - size / 2f, size, size) && pred.get(other)){
+                            cons.get(other);
+                            any = true;
+                        }
+                    }
                 }
             }
         }
@@ -270,26 +321,30 @@ public class BlockIndexer{
         Building closest = null;
         float dst = 0;
 
-        for(int rx = Math.max((int)((x - range) / tilesize / quadrantSize), 0); rx <= (int)((x + range) / tilesize / quadrantSize) && rx < quadWidth(); rx++){
-            for(int ry = Math.max((int)((y - range) / tilesize / quadrantSize), 0); ry <= (int)((y + range) / tilesize / quadrantSize) && ry < quadHeight(); ry++){
+        Seq<Building>[] quadrants = buildingQuadrants[team.id];
+        if(quadrants == null || team == Team.derelict) return null;
 
-                if(!getQuad(team, rx, ry)) continue;
+        float pad = (maxBuildingSize / 2 + 1) * tilesize;
+        int minx = quadX(x - range - pad), miny = quadY(y - range - pad), maxx = quadX(x + range + pad), maxy = quadY(y + range + pad), qwidth = quadWidth();
 
-                for(int tx = rx * quadrantSize; tx < (rx + 1) * quadrantSize && tx < world.width(); tx++){
-                    for(int ty = ry * quadrantSize; ty < (ry + 1) * quadrantSize && ty < world.height(); ty++){
-                        Building e = world.build(tx, ty);
+        for(int ry = miny; ry <= maxy; ry++){
+            for(int rx = minx; rx <= maxx; rx++){
+                Seq<Building> quadrant = quadrants[rx + ry * qwidth];
+                if(quadrant == null) continue;
 
-                        if(e == null || e.team != team || !pred.get(e) || !e.block.targetable || e.team == Team.derelict) continue;
+                for(int i = 0; i < quadrant.size; i++){
+                    Building e = quadrant.items[i];
 
-                        float bdst = e.dst(x, y) - e.hitSize() / 2f;
-                        if(bdst < range && (closest == null ||
-                        //this one is closer, and it is at least of equal priority
-                        (bdst < dst && (!usePriority || closest.block.priority.ordinal() <= e.block.priority.ordinal())) ||
-                        //priority is used, and new block has higher priority regardless of range
-                        (usePriority && closest.block.priority.ordinal() < e.block.priority.ordinal()))){
-                            dst = bdst;
-                            closest = e;
-                        }
+                    if(!e.block.targetable || !pred.get(e)) continue;
+
+                    float bdst = e.dst(x, y) - e.hitSize() / 2f;
+                    if(bdst < range && (closest == null ||
+                    //this one is closer, and it is at least of equal priority
+                    (bdst < dst && (!usePriority || closest.block.priority.ordinal() <= e.block.priority.ordinal())) ||
+                    //priority is used, and new block has higher priority regardless of range
+                    (usePriority && closest.block.priority.ordinal() < e.block.priority.ordinal()))){
+                        dst = bdst;
+                        closest = e;
                     }
                 }
             }
@@ -399,40 +454,45 @@ public class BlockIndexer{
         }
     }
 
-    private void updateQuadrant(Tile tile){
-        if(structQuadrants == null) return;
-
-        //this quadrant is now 'dirty', re-scan the whole thing
-        int quadrantX = tile.x / quadrantSize;
-        int quadrantY = tile.y / quadrantSize;
-
-        for(Team team : activeTeams){
-            GridBits bits = structQuadrant(team);
+    /** Updates the building stored at this tile, if it is or was the center of one. */
+    private void updateBuildingIndex(Tile tile){
+        int pos = tile.pos();
+        BuildingIndex index = buildingMap.get(pos);
+        Building build = tile.build != null && tile.build.tile == tile ? tile.build : null;
+
+        if(index != null && (index.build != build || index.team != build.team)){
+            Seq<Building> quadrant = buildingQuadrant(index.team, tile.x, tile.y);
+            quadrant.remove(index.build, true);
+            buildingMap.remove(pos);
+            index = null;
+        }
 
-            //fast-set this quadrant to 'occupied' if the tile just placed is already of this team
-            if(tile.team() == team && tile.build != null && tile.block().targetable){
-                bits.set(quadrantX, quadrantY);
-                continue; //no need to process futher
-            }
+        if(index == null && build != null){
+            buildingQuadrant(build.team, tile.x, tile.y).add(build);
+            buildingMap.put(pos, new BuildingIndex(build, build.team));
+            maxBuildingSize = Math.max(maxBuildingSize, build.block.size);
+        }
+    }
 
-            bits.set(quadrantX, quadrantY, false);
+    private Seq<Building> buildingQuadrant(Team team, int tileX, int tileY){
+        if(buildingQuadrants[team.id] == null){
+            buildingQuadrants[team.id] = new Seq[quadWidth() * quadHeight()];
+        }
 
-            outer:
-            for(int x = quadrantX * quadrantSize; x < world.width() && x < (quadrantX + 1) * quadrantSize; x++){
-                for(int y = quadrantY * quadrantSize; y < world.height() && y < (quadrantY + 1) * quadrantSize; y++){
-                    Building result = world.build(x, y);
-                    //when a targetable block is found, mark this quadrant as occupied and stop searching
-                    if(result != null && result.team == team){
-                        bits.set(quadrantX, quadrantY);
-                        break outer;
-                    }
-                }
-            }
+        Seq<Building>[] quadrants = buildingQuadrants[team.id];
+        int index = tileX / quadrantSize + tileY / quadrantSize * quadWidth();
+        if(quadrants[index] == null){
+            quadrants[index] = new Seq<>(false, 16, Building.class);
         }
+        return quadrants[index];
+    }
+
+    private int quadX(float wx){
+        return Mathf.clamp((int)(wx / tilesize / quadrantSize), 0, quadWidth() - 1);
     }
 
-    private boolean getQuad(Team team, int quadrantX, int quadrantY){
-        return structQuadrant(team).get(quadrantX, quadrantY);
+    private int quadY(float wy){
+        return Mathf.clamp((int)(wy / tilesize / quadrantSize), 0, quadHeight() - 1);
     }
 
     private int quadWidth(){
@@ -443,8 +503,8 @@ public class BlockIndexer{
         return Mathf.ceil(world.height() / (float)quadrantSize);
     }
 
-    private void scanOres(){
-        ores = new ObjectMap<>();
+    private ObjectMap<Item, TileArray> scanOres(){
+        ObjectMap<Item, TileArray> ores = new ObjectMap<>();
 
         //initialize ore map with empty sets
         for(Item item : scanOres){
@@ -463,6 +523,8 @@ public class BlockIndexer{
                 Mathf.clamp(qy * quadrantSize + quadrantSize / 2, 0, world.height() - 1)));
             }
         }
+
+        return ores;
     }
 
     private static class TileIndex{
@@ -475,6 +537,16 @@ public class BlockIndexer{
         }
     }
 
+    private static class BuildingIndex{
+        public final Building build;
+        public final Team team;
+
+        public BuildingIndex(Building build, Team team){
+            this.build = build;
+            this.team = team;
+        }
+    }
+
     public static class TileArray implements Iterable<Tile>{
         Seq<Tile> tiles = new Seq<>(false, 16);
         IntSet contained = new IntSet();
@@ -0,0 +1,420 @@
+package mindustry.ai;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.ai.Astar.*;
+import mindustry.world.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * A two-level path graph for long distance queries.
+ * The map is split into square clusters; passable stretches of border between neighboring clusters become portals,
+ * and the costs between all portals of a cluster are precomputed. Queries search the small portal graph first,
+ * then refine each step into tiles with a search limited to a single cluster.
+ * Clusters are rebuilt lazily after their tiles are invalidated.
+ * Paths are close to, but not always exactly, the shortest ones. Not thread-safe.
+ */
+public class HierarchicalPathfinder{
+    /** Side length of a cluster, in tiles. */
+    public static final int clusterSize = 16;
+    /** Entrances at least this long get a portal at each end instead of one in the middle. */
+    private static final int wideEntrance = 6;
+    private static final int impassable = -1;
+
+    public final int width, height;
+    final int clustersX, clustersY;
+    final TileCost cost;
+    final Cluster[] clusters;
+
+    /** search state, keyed by tile index */
+    private final IntIntMap searchCosts = new IntIntMap(), searchParents = new IntIntMap();
+    private final IntHeap heap = new IntHeap(), localHeap = new IntHeap();
+    /** local cluster search state, indexed by position within the cluster */
+    private final int[] localCosts = new int[clusterSize * clusterSize], localParents = new int[clusterSize * clusterSize];
+    private final IntSeq nodes = new IntSeq(), steps = new IntSeq(), startCosts = new IntSeq(), endCosts = new IntSeq(), result = new IntSeq();
+    private final Seq<Tile> out = new Seq<>();
+
+    /** @param cost cost of moving into a tile; -1 if it cannot be entered. */
+    public HierarchicalPathfinder(int width, int height, TileCost cost){
+        this.width = width;
+        this.height = height;
+        this.cost = cost;
+        this.clustersX = (width + clusterSize - 1) / clusterSize;
+        this.clustersY = (height + clusterSize - 1) / clusterSize;
+        this.clusters = new Cluster[clustersX * clustersY];
+
+        for(int cx = 0; cx < clustersX; cx++){
+            for(int cy = 0; cy < clustersY; cy++){
+                int x = cx * clusterSize, y = cy * clusterSize;
+                clusters[cx + cy * clustersX] = new Cluster(x, y, Math.min(clusterSize, width - x), Math.min(clusterSize, height - y));
+            }
+        }
+    }
+
+    /** Creates a graph of the current world using the same cost functions as {@link Astar}. Costs are rounded to at least 1. */
+    public static HierarchicalPathfinder of(TileHueristic th, Boolf<Tile> passable){
+        Tiles tiles = world.tiles;
+        return new HierarchicalPathfinder(tiles.width, tiles.height, (x, y) -> {
+            Tile tile = tiles.getn(x, y);
+            return passable.get(tile) ? Math.max(Math.round(th.cost(tile)), 1) : impassable;
+        });
+    }
+
+    /** Marks the clusters that a tile's cost is used by for rebuilding. */
+    public void invalidate(int x, int y){
+        if(x < 0 || y < 0 || x >= width || y >= height) return;
+
+        int cx = x / clusterSize, cy = y / clusterSize;
+        clusters[cx + cy * clustersX].dirty = true;
+
+        //border tiles are also scanned by the neighboring cluster
+        if(x % clusterSize == 0 && cx > 0) clusters[cx - 1 + cy * clustersX].dirty = true;
+        if(x % clusterSize == clusterSize - 1 && cx < clustersX - 1) clusters[cx + 1 + cy * clustersX].dirty = true;
+        if(y % clusterSize == 0 && cy > 0) clusters[cx + (cy - 1) * clustersX].dirty = true;
+        if(y % clusterSize == clusterSize - 1 && cy < clustersY - 1) clusters[cx + (cy + 1) * clustersX].dirty = true;
+    }
+
+    /** Marks every cluster for rebuilding. */
+    public void invalidateAll(){
+        for(Cluster cluster : clusters){
+            cluster.dirty = true;
+        }
+    }
+
+    /** Finds a path between two tiles of the world, in the same format as {@link Astar#pathfind(Tile, Tile, TileHueristic, Boolf)}. */
+    public Seq<Tile> pathfind(Tile from, Tile to){
+        out.clear();
+        if(findPath(from.x, from.y, to.x, to.y, result)){
+            for(int i = 0; i < result.size; i++){
+                int index = result.items[i];
+                out.add(world.tile(index % width, index / width));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Finds a path between two positions.
+     * @param out receives the tile indices (x + y * width) of the path, excluding the start and including the end.
+     * @return whether a path was found.
+     */
+    public boolean findPath(int startX, int startY, int endX, int endY, IntSeq out){
+        out.clear();
+
+        if(startX < 0 || startY < 0 || startX >= width || startY >= height || endX < 0 || endY < 0 || endX >= width || endY >= height) return false;
+        if(cost.get(endX, endY) == impassable) return false;
+
+        int start = startX + startY * width, end = endX + endY * width;
+        if(start == end) return true;
+
+        Cluster startCluster = cluster(start), endCluster = cluster(end);
+
+        //paths inside a single cluster do not need the portal graph
+        if(startCluster == endCluster && local(startCluster, start, end, false) != impassable){
+            appendLocal(startCluster, start, end, out);
+            return true;
+        }
+
+        local(startCluster, start, -1, false);
+        readPortalCosts(startCluster, startCosts);
+        local(endCluster, end, -1, true);
+        readPortalCosts(endCluster, endCosts);
+
+        int goal = width * height, root = goal + 1;
+
+        searchCosts.clear();
+        searchParents.clear();
+        heap.clear();
+
+        for(int i = 0; i < startCluster.portals.size; i++){
+            int portal = startCluster.portals.items[i], c = startCosts.items[i];
+            if(c != impassable) relax(portal, root, c, end);
+        }
+
+        boolean found = false;
+        while(heap.size > 0){
+            int priority = heap.peekPriority(), node = heap.pop();
+            int current = searchCosts.get(node, Integer.MAX_VALUE);
+
+            //outdated heap entry
+            if(priority != current + heuristic(node, end)) continue;
+
+            if(node == goal){
+                found = true;
+                break;
+            }
+
+            Cluster cluster = cluster(node);
+            for(int i = 0; i < cluster.portals.size; i++){
+                if(cluster.portals.items[i] != node) continue;
+
+                //step across the border
+                int partner = cluster.partners.items[i];
+                relax(partner, node, current + cost.get(partner % width, partner / width), end);
+
+                //move to other portals of the cluster
+                for(int j = 0; j < cluster.portals.size; j++){
+                    int d = cluster.distances[i * cluster.portals.size + j];
+                    if(d != impassable && cluster.portals.items[j] != node){
+                        relax(cluster.portals.items[j], node, current + d, end);
+                    }
+                }
+
+                if(cluster == endCluster && endCosts.items[i] != impassable){
+                    relax(goal, node, current + endCosts.items[i], end);
+                }
+            }
+        }
+
+        if(!found) return false;
+
+        //walk back through the portal graph
+        nodes.clear();
+        nodes.add(end);
+        int node = searchParents.get(goal, root);
+        while(node != root){
+            nodes.add(node);
+            node = searchParents.get(node, root);
+        }
+        nodes.add(start);
+        nodes.reverse();
+
+        //refine each step into tiles
+        for(int i = 0; i < nodes.size - 1; i++){
+            int from = nodes.items[i], to = nodes.items[i + 1];
+            Cluster cluster = cluster(from);
+
+            if(cluster != cluster(to)){
+                out.add(to);
+            }else if(from != to){
+                local(cluster, from, to, false);
+                appendLocal(cluster, from, to, out);
+            }
+        }
+
+        return true;
+    }
+
+    private void relax(int node, int parent, int total, int end){
+        if(total < searchCosts.get(node, Integer.MAX_VALUE)){
+            searchCosts.put(node, total);
+            searchParents.put(node, parent);
+            heap.add(node, total + heuristic(node, end));
+        }
+    }
+
+    private int heuristic(int node, int end){
+        if(node >= width * height) return 0;
+        return Math.abs(node % width - end % width) + Math.abs(node / width - end / width);
+    }
+
+    /** @return the cluster containing a tile, rebuilding it if necessary. */
+    private Cluster cluster(int index){
+        Cluster cluster = clusters[(index % width) / clusterSize + (index / width) / clusterSize * clustersX];
+        if(cluster.dirty){
+            build(cluster);
+        }
+        return cluster;
+    }
+
+    private void build(Cluster cluster){
+        cluster.dirty = false;
+        cluster.portals.clear();
+        cluster.partners.clear();
+
+        int x = cluster.x, y = cluster.y, w = cluster.w, h = cluster.h;
+
+        //right, top, left, bottom borders
+        if(x + w < width) scanBorder(cluster, x + w - 1, y, 0, 1, h, 1, 0);
+        if(y + h < height) scanBorder(cluster, x, y + h - 1, 1, 0, w, 0, 1);
+        if(x > 0) scanBorder(cluster, x, y, 0, 1, h, -1, 0);
+        if(y > 0) scanBorder(cluster, x, y, 1, 0, w, 0, -1);
+
+        int size = cluster.portals.size;
+        cluster.distances = new int[size * size];
+
+        for(int i = 0; i < size; i++){
+            local(cluster, cluster.portals.items[i], -1, false);
+            readPortalCosts(cluster, startCosts);
+            System.arraycopy(startCosts.items, 0, cluster.distances, i * size, size);
+        }
+    }
+
+    /**
+     * Adds portals for every passable stretch of a border.
+     * Placement only depends on positions along the border, so both clusters sharing it create matching portals.
+     */
+    private void scanBorder(Cluster cluster, int x, int y, int stepX, int stepY, int length, int outX, int outY){
+        int begin = -1;
+        for(int i = 0; i <= length; i++){
+            boolean open = i < length &&
+                cost.get(x + stepX * i, y + stepY * i) != impassable &&
+                cost.get(x + stepX * i + outX, y + stepY * i + outY) != impassable;
+
+            if(open && begin == -1){
+                begin = i;
+            }else if(!open && begin != -1){
+                int last = i - 1;
+                if(last - begin + 1 >= wideEntrance){
+                    addPortal(cluster, x + stepX * begin, y + stepY * begin, outX, outY);
+                    addPortal(cluster, x + stepX * last, y + stepY * last, outX, outY);
+                }else{
+                    int mid = (begin + last) / 2;
+                    addPortal(cluster, x + stepX * mid, y + stepY * mid, outX, outY);
+                }
+                begin = -1;
+            }
+        }
+    }
+
+    private void addPortal(Cluster cluster, int x, int y, int outX, int outY){
+        cluster.portals.add(x + y * width);
+        cluster.partners.add(x + outX + (y + outY) * width);
+    }
+
+    /** Copies the costs of the last local search to each portal of the cluster. */
+    private void readPortalCosts(Cluster cluster, IntSeq out){
+        out.clear();
+        for(int i = 0; i < cluster.portals.size; i++){
+            int portal = cluster.portals.items[i];
+            int c = localCosts[localIndex(cluster, portal)];
+            out.add(c == Integer.MAX_VALUE ? impassable : c);
+        }
+    }
+
+    /**
+     * Runs a search limited to one cluster.
+     * @param to the tile to stop at, or -1 to compute costs to the whole cluster.
+     * @param reverse whether to compute the costs of reaching the source instead of leaving it.
+     * @return the cost of reaching the target, or -1 if it cannot be reached.
+     */
+    private int local(Cluster cluster, int from, int to, boolean reverse){
+        int cw = cluster.w, ch = cluster.h;
+        Arrays.fill(localCosts, 0, cw * ch, Integer.MAX_VALUE);
+
+        int source = localIndex(cluster, from), target = to == -1 ? -1 : localIndex(cluster, to);
+        localCosts[source] = 0;
+        localParents[source] = -1;
+        localHeap.clear();
+        localHeap.add(source, 0);
+
+        while(localHeap.size > 0){
+            int priority = localHeap.peekPriority(), node = localHeap.pop();
+            if(priority != localCosts[node]) continue;
+            if(node == target) return priority;
+
+            int lx = node % cw, ly = node / cw;
+            int nodeCost = reverse ? cost.get(cluster.x + lx, cluster.y + ly) : 0;
+
+            for(Point2 point : Geometry.d4){
+                int nx = lx + point.x, ny = ly + point.y;
+                if(nx < 0 || ny < 0 || nx >= cw || ny >= ch) continue;
+
+                int otherCost = cost.get(cluster.x + nx, cluster.y + ny);
+                if(otherCost == impassable) continue;
+
+                int other = nx + ny * cw, total = priority + (reverse ? nodeCost : otherCost);
+                if(total < localCosts[other]){
+                    localCosts[other] = total;
+                    localParents[other] = node;
+                    localHeap.add(other, total);
+                }
+            }
+        }
+
+        return target == -1 || localCosts[target] == Integer.MAX_VALUE ? impassable : localCosts[target];
+    }
+
+    /** Appends the path found by the last forward local search, excluding its start. */
+    private void appendLocal(Cluster cluster, int from, int to, IntSeq out){
+        steps.clear();
+        int source = localIndex(cluster, from);
+        for(int node = localIndex(cluster, to); node != source && node != -1; node = localParents[node]){
+            steps.add(cluster.x + node % cluster.w + (cluster.y + node / cluster.w) * width);
+        }
+        for(int i = steps.size - 1; i >= 0; i--){
+            out.add(steps.items[i]);
+        }
+    }
+
+    private int localIndex(Cluster cluster, int index){
+        return (index % width - cluster.x) + (index / width - cluster.y) * cluster.w;
+    }
+
+    public interface TileCost{
+        /** @return the cost of moving into this tile, or -1 if it cannot be entered. */
+        int get(int x, int y);
+    }
+
+    static class Cluster{
+        /** bounds, in tiles */
+        final int x, y, w, h;
+        /** tile indices of the portals, and the tiles across the border that they lead to */
+        final IntSeq portals = new IntSeq(), partners = new IntSeq();
+        /** costs between each pair of portals, row-major; -1 if unreachable */
+        int[] distances = {};
+        boolean dirty = true;
+
+        Cluster(int x, int y, int w, int h){
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+        }
+    }
+
+    /** Binary min-heap of ints with integer priorities. Outdated entries are skipped by the caller. */
+    static class IntHeap{
+        int[] values = new int[64], priorities = new int[64];
+        int size;
+
+        void clear(){
+            size = 0;
+        }
+
+        void add(int value, int priority){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+
+            int i = size++;
+            while(i > 0){
+                int parent = (i - 1) / 2;
+                if(priorities[parent] <= priority) break;
+                values[i] = values[parent];
+                priorities[i] = priorities[parent];
+                i = parent;
+            }
+            values[i] = value;
+            priorities[i] = priority;
+        }
+
+        int peekPriority(){
+            return priorities[0];
+        }
+
+        int pop(){
+            int result = values[0];
+            int value = values[--size], priority = priorities[size];
+
+            int i = 0;
+            while(true){
+                int child = i * 2 + 1;
+                if(child >= size) break;
+                if(child + 1 < size && priorities[child + 1] < priorities[child]) child++;
+                if(priorities[child] >= priority) break;
+                values[i] = values[child];
+                priorities[i] = priorities[child];
+                i = child;
+            }
+            values[i] = value;
+            priorities[i] = priority;
+            return result;
+        }
+    }
+}
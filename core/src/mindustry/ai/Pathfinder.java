@@ -12,10 +12,14 @@ import mindustry.core.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
 import mindustry.gen.*;
+import mindustry.net.Administration.*;
 import mindustry.world.*;
 import mindustry.world.blocks.storage.*;
 import mindustry.world.meta.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class Pathfinder implements Runnable{
@@ -23,6 +27,8 @@ public class Pathfinder implements Runnable{
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
     private static final int impassable = -1;
+    /** Time in milliseconds after the last query that a field is still considered to have active units. */
+    private static final long activeTimeout = 2000;
 
     public static final int
         fieldCore = 0,
@@ -61,32 +67,60 @@ public class Pathfinder implements Runnable{
     //maps team, cost, type to flow field
     Flowfield[][][] cache;
 
-    /** tile data, see PathTileStruct */
-    int[][] tiles = new int[0][0];
+    /** tile data, see PathTileStruct; indexed by x + y * width */
+    int[] tiles = {};
+    /** dimensions of the tile array */
+    int width, height;
+    /** tile data of the map being loaded, packed by the load pipeline before the world load event */
+    int[] loadTiles = {};
+    /** cached movement costs of every tile for each team and cost type in use. Pathfinding thread only. */
+    Seq<CostLayer> layers = new Seq<>();
+    /** maps team, cost to hierarchical path graph. Main thread only. */
+    HierarchicalPathfinder[][] hierarchies;
+    Seq<HierarchicalPathfinder> hierarchyList = new Seq<>();
+    /** buffer for hierarchical path queries. Main thread only. */
+    IntSeq waypointPath = new IntSeq();
     /** unordered array of path data for iteration only. DO NOT iterate or access this in the main thread. */
     Seq<Flowfield> threadList = new Seq<>(), mainList = new Seq<>();
     /** handles task scheduling on the update thread. */
     TaskQueue queue = new TaskQueue();
     /** Current pathfinding thread */
     @Nullable Thread thread;
+    /** Worker pool for updating flow fields in parallel; null when running on a single thread. */
+    @Nullable ExecutorService executor;
+    /** Amount of threads flow fields are currently updated on. */
+    int workers = 1;
+    Seq<Future<?>> futures = new Seq<>();
     IntSeq tmpArray = new IntSeq();
+    /** buffers for local flow field repairs. Pathfinding thread only. */
+    IntQueue repairQueue = new IntQueue();
+    IntSeq repairTiles = new IntSeq();
 
     public Pathfinder(){
         clearCache();
 
+        //packing reads the static darkness of walls
+        world.loadPipeline.add("pathfinder", () -> {
+            int[] packed = new int[world.width() * world.height()];
+            for(Tile tile : world.tiles){
+                packed[tile.x + tile.y * world.width()] = packTile(tile);
+            }
+            loadTiles = packed;
+        }, "darkness");
+
         Events.on(WorldLoadEvent.class, event -> {
             stop();
 
             //reset and update internal tile array
-            tiles = new int[world.width()][world.height()];
+            width = world.width();
+            height = world.height();
+            tiles = loadTiles;
+            loadTiles = new int[0];
+            layers = new Seq<>();
             threadList = new Seq<>();
             mainList = new Seq<>();
             clearCache();
 
-            for(Tile tile : world.tiles){
-                tiles[tile.x][tile.y] = packTile(tile);
-            }
-
             preloadPath(getField(state.rules.waveTeam, costGround, fieldCore));
 
             //preload water on naval maps
@@ -104,6 +138,8 @@ public class Pathfinder implements Runnable{
 
     private void clearCache(){
         cache = new Flowfield[256][5][5];
+        hierarchies = new HierarchicalPathfinder[256][5];
+        hierarchyList.clear();
     }
 
     /** Packs a tile into its internal representation. */
@@ -136,6 +172,16 @@ public class Pathfinder implements Runnable{
     /** Starts or restarts the pathfinding thread. */
     private void start(){
         stop();
+
+        workers = Math.max(Config.pathfinderThreads.num(), 1);
+        if(workers > 1){
+            executor = Executors.newFixedThreadPool(workers, r -> {
+                Thread thread = new Thread(r, "Pathfinder-Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
         thread = Threads.daemon(this);
     }
 
@@ -145,6 +191,10 @@ public class Pathfinder implements Runnable{
             thread.interrupt();
             thread = null;
         }
+        if(executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
         queue.clear();
     }
 
@@ -154,16 +204,43 @@ public class Pathfinder implements Runnable{
         if(net.client()) return;
 
         int x = tile.x, y = tile.y;
+        long requested = Time.nanos();
+        IntSeq changed = new IntSeq(tile.block().size * tile.block().size);
 
         tile.getLinkedTiles(t -> {
-            if(Structs.inBounds(t.x, t.y, tiles)){
-                tiles[t.x][t.y] = packTile(t);
+            if(t.x < width && t.y < height){
+                int index = t.x + t.y * width;
+                tiles[index] = packTile(t);
+                changed.add(index);
             }
         });
 
+        //the packed data of adjacent tiles depends on whether this one is solid
+        for(int i = 0, linked = changed.size; i < linked; i++){
+            int cx = changed.items[i] % width, cy = changed.items[i] / width;
+            for(Point2 point : Geometry.d4){
+                Tile other = world.tile(cx + point.x, cy + point.y);
+                if(other == null || other.x >= width || other.y >= height) continue;
+
+                int index = other.x + other.y * width;
+                if(!changed.contains(index)){
+                    tiles[index] = packTile(other);
+                    changed.add(index);
+                }
+            }
+        }
+
+        for(int i = 0; i < changed.size; i++){
+            int index = changed.items[i];
+            for(HierarchicalPathfinder graph : hierarchyList){
+                graph.invalidate(index % width, index / width);
+            }
+        }
+
         //can't iterate through array so use the map, which should not lead to problems
         for(Flowfield path : mainList){
             if(path != null){
+                path.waypoints.clear();
                 synchronized(path.targets){
                     path.targets.clear();
                     path.getPositions(path.targets);
@@ -172,8 +249,15 @@ public class Pathfinder implements Runnable{
         }
 
         queue.post(() -> {
+            for(CostLayer layer : layers){
+                for(int i = 0; i < changed.size; i++){
+                    int index = changed.items[i];
+                    layer.costs[index] = layer.cost.getCost(layer.team, tiles[index]);
+                }
+            }
+
             for(Flowfield data : threadList){
-                updateTargets(data, x, y);
+                updateTargets(data, x, y, changed, requested);
             }
         });
     }
@@ -187,11 +271,7 @@ public class Pathfinder implements Runnable{
 
                 if(state.isPlaying()){
                     queue.run();
-
-                    //total update time no longer than maxUpdate
-                    for(Flowfield data : threadList){
-                        updateFrontier(data, maxUpdate / threadList.size);
-                    }
+                    updateFields();
                 }
 
                 try{
@@ -200,12 +280,74 @@ public class Pathfinder implements Runnable{
                     //stop looping when interrupted externally
                     return;
                 }
+            }catch(InterruptedException e){
+                return;
             }catch(Throwable e){
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Updates the frontier of every flow field. Fields that units are currently following are scheduled first and get a larger share of the time budget.
+     * With more than one worker, fields are updated in parallel; this is safe, as fields never share state besides the read-only tile array.
+     * Pathfinding thread only.
+     */
+    private void updateFields() throws InterruptedException, ExecutionException{
+        if(threadList.isEmpty()) return;
+
+        long now = Time.millis();
+        int totalWeight = 0;
+        for(Flowfield data : threadList){
+            data.active = now - data.lastQueried <= activeTimeout;
+            totalWeight += data.active ? 2 : 1;
+        }
+
+        threadList.sort((a, b) -> Boolean.compare(b.active, a.active));
+
+        //total update time no longer than maxUpdate per worker
+        long budget = maxUpdate * workers / totalWeight;
+
+        if(executor == null){
+            for(Flowfield data : threadList){
+                updateFrontier(data, data.active ? budget * 2 : budget);
+            }
+        }else{
+            futures.clear();
+
+            //the executor's queue is FIFO, so active fields are picked up first
+            for(Flowfield data : threadList){
+                if(data.frontier.isEmpty()){
+                    //nothing to compute, but still record convergence
+                    updateFrontier(data, 0);
+                    continue;
+                }
+                long time = data.active ? budget * 2 : budget;
+                futures.add(executor.submit(() -> updateFrontier(data, time)));
+            }
+
+            for(Future<?> future : futures){
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Applies queued tile changes and updates every flow field until it converges, on the calling thread.
+     * Only use this while the pathfinding thread is idle, i.e. when the game is not playing.
+     */
+    public void updateNow(){
+        queue.run();
+        for(Flowfield data : threadList){
+            updateFrontier(data, -1);
+        }
+    }
+
+    /** @return all flow fields that have been created. Main thread only. */
+    public Seq<Flowfield> getFields(){
+        return mainList;
+    }
+
     public Flowfield getField(Team team, int costType, int fieldType){
         if(cache[team.id][costType][fieldType] == null){
             Flowfield field = fieldTypes.get(fieldType).get();
@@ -215,15 +357,32 @@ public class Pathfinder implements Runnable{
             field.getPositions(field.targets);
 
             cache[team.id][costType][fieldType] = field;
-            queue.post(() -> registerPath(field));
+            long requested = Time.nanos();
+            queue.post(() -> registerPath(field, requested));
         }
         return cache[team.id][costType][fieldType];
     }
 
+    /**
+     * @return a hierarchical path graph using the same tile data and costs as flow fields, for long distance queries to arbitrary positions.
+     * Main thread only.
+     */
+    public HierarchicalPathfinder getHierarchy(Team team, int costType){
+        if(hierarchies[team.id][costType] == null){
+            PathCost cost = costTypes.get(costType);
+            HierarchicalPathfinder graph = new HierarchicalPathfinder(width, height, (x, y) -> cost.getCost(team, tiles[x + y * width]));
+            hierarchies[team.id][costType] = graph;
+            hierarchyList.add(graph);
+        }
+        return hierarchies[team.id][costType];
+    }
+
     /** Gets next tile to travel to. Main thread only. */
     public @Nullable Tile getTargetTile(Tile tile, Flowfield path){
         if(tile == null) return null;
 
+        path.lastQueried = Time.millis();
+
         //uninitialized flowfields are not applicable
         if(!path.initialized){
             return tile;
@@ -241,15 +400,23 @@ public class Pathfinder implements Runnable{
                 if(!(path.targets.size == 1 && tmpArray.size == 1 && path.targets.first() == tmpArray.first())){
                     path.targets.clear();
                     path.getPositions(path.targets);
+                    path.waypoints.clear();
 
                     //queue an update
-                    queue.post(() -> updateTargets(path));
+                    long requested = Time.nanos();
+                    queue.post(() -> updateTargets(path, requested));
                 }
             }
         }
 
-        int[][] values = path.weights;
-        int value = values[tile.x][tile.y];
+        int[] values = path.weights;
+        int value = values[tile.x + tile.y * path.width];
+
+        //no search has reached this tile yet, which takes a while for distant targets on large maps; follow the hierarchical graph until one does
+        if(path.searches[tile.x + tile.y * path.width] == 0){
+            Tile waypoint = getWaypoint(tile, path);
+            if(waypoint != null) return waypoint;
+        }
 
         Tile current = null;
         int tl = 0;
@@ -259,10 +426,12 @@ public class Pathfinder implements Runnable{
             Tile other = world.tile(dx, dy);
             if(other == null) continue;
 
-            if(values[dx][dy] < value && (current == null || values[dx][dy] < tl) && path.passable(dx, dy) &&
+            int otherValue = values[dx + dy * path.width];
+
+            if(otherValue < value && (current == null || otherValue < tl) && path.passable(dx, dy) &&
             !(point.x != 0 && point.y != 0 && (!path.passable(tile.x + point.x, tile.y) || !path.passable(tile.x, tile.y + point.y)))){ //diagonal corner trap
                 current = other;
-                tl = values[dx][dy];
+                tl = otherValue;
             }
         }
 
@@ -271,53 +440,185 @@ public class Pathfinder implements Runnable{
         return current;
     }
 
+    /** @return the next tile of a hierarchical path from this tile to the closest target of the field, or null if there is none. */
+    private @Nullable Tile getWaypoint(Tile tile, Flowfield path){
+        int index = tile.x + tile.y * width;
+        int next = path.waypoints.get(index, -1);
+
+        if(next == -1){
+            int target = -1, targetDst = Integer.MAX_VALUE;
+            synchronized(path.targets){
+                for(int i = 0; i < path.targets.size; i++){
+                    int pos = path.targets.items[i], dst = Math.abs(pos % width - tile.x) + Math.abs(pos / width - tile.y);
+                    if(dst < targetDst){
+                        target = pos;
+                        targetDst = dst;
+                    }
+                }
+            }
+
+            if(target == -1 || !getHierarchy(path.team, path.costType()).findPath(tile.x, tile.y, target % width, target / width, waypointPath) || waypointPath.isEmpty()){
+                //remember that there is no path, so the query is not repeated every frame
+                path.waypoints.put(index, index);
+                return null;
+            }
+
+            //every tile of the path leads to the next one, so units that walk onto it later don't need another query
+            int last = index;
+            for(int i = 0; i < waypointPath.size; i++){
+                path.waypoints.put(last, waypointPath.items[i]);
+                last = waypointPath.items[i];
+            }
+            next = waypointPath.first();
+        }
+
+        return world.tile(next);
+    }
+
     /**
-     * Clears the frontier, increments the search and sets up all flow sources.
+     * Repairs the region of the field affected by the changed tiles, or if that is not possible,
+     * clears the frontier, increments the search and sets up all flow sources.
      * This only occurs for active teams.
      */
-    private void updateTargets(Flowfield path, int x, int y){
-        if(!Structs.inBounds(x, y, path.weights)) return;
+    private void updateTargets(Flowfield path, int x, int y, IntSeq changed, long requested){
+        if(x >= path.width || y >= path.height) return;
 
-        if(path.weights[x][y] == 0){
+        int index = x + y * path.width;
+
+        if(path.weights[index] == 0){
             //this was a previous target
             path.frontier.clear();
-        }else if(!path.frontier.isEmpty()){
-            //skip if this path is processing
+        }else if(!path.frontier.isEmpty() && !path.repairing){
+            //skip if this path is processing a full search
             return;
+        }else{
+            //a pending repair has to finish first, as marking the affected tiles relies on a converged field
+            if(!path.frontier.isEmpty()){
+                updateFrontier(path, -1);
+            }
+
+            if(repair(path, changed, requested)){
+                //only the tiles depending on the changed ones need to be recomputed
+                return;
+            }
         }
 
         //update cost of the tile TODO maybe only update the cost when it's not passable
-        path.weights[x][y] = path.cost.getCost(path.team, tiles[x][y]);
+        path.weights[index] = path.costs[index];
 
         //clear frontier to prevent contamination
         path.frontier.clear();
 
-        updateTargets(path);
+        updateTargets(path, requested);
     }
 
     /** Increments the search and sets up flow sources. Does not change the frontier. */
-    private void updateTargets(Flowfield path){
+    private void updateTargets(Flowfield path, long requested){
 
         //increment search, but do not clear the frontier
         path.search++;
+        path.request(requested, false);
 
         synchronized(path.targets){
             //add targets
             for(int i = 0; i < path.targets.size; i++){
                 int pos = path.targets.get(i);
-                int tx = Point2.x(pos), ty = Point2.y(pos);
+                int index = Point2.x(pos) + Point2.y(pos) * path.width;
 
-                path.weights[tx][ty] = 0;
-                path.searches[tx][ty] = path.search;
-                path.frontier.addFirst(pos);
+                path.weights[index] = 0;
+                path.searches[index] = path.search;
+                path.frontier.addFirst(index);
             }
         }
     }
 
+    /**
+     * Locally repairs a converged field after the costs of some tiles changed.
+     * Every tile whose weight may have been derived from a changed tile is marked as part of an older search,
+     * and the valid tiles surrounding that region are added to the frontier, which then recomputes only the marked tiles.
+     * Decreased costs propagate normally from the changed tiles' neighbors.
+     * @return false if a target changed or the affected region is too large, in which case the field needs to be recomputed from the targets.
+     */
+    private boolean repair(Flowfield path, IntSeq changed, long requested){
+        int[] weights = path.weights, searches = path.searches, costs = path.costs;
+        int width = path.width, height = path.height, search = path.search, limit = weights.length / 2;
+
+        repairQueue.clear();
+        repairTiles.clear();
+
+        for(int i = 0; i < changed.size; i++){
+            int index = changed.items[i];
+            //targets moving requires a full search
+            if(weights[index] == 0) return false;
+
+            searches[index] = search - 1;
+            repairQueue.addFirst(index);
+            repairTiles.add(index);
+        }
+
+        //mark all tiles whose weight could have come from a stale tile
+        while(repairQueue.size > 0){
+            int index = repairQueue.removeLast();
+            int weight = weights[index], x = index % width, y = index / width;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
+
+                int other = dx + dy * width;
+                if(searches[other] == search && weights[other] != 0 && weights[other] == weight + costs[other]){
+                    searches[other] = search - 1;
+                    repairQueue.addFirst(other);
+                    repairTiles.add(other);
+
+                    if(repairTiles.size > limit) return false;
+                }
+            }
+        }
+
+        //stale tiles that can no longer be reached must end up impassable, as they would after a full search
+        for(int i = 0; i < repairTiles.size; i++){
+            weights[repairTiles.items[i]] = impassable;
+        }
+
+        //propagate from the valid tiles bordering the stale region
+        for(int i = 0; i < repairTiles.size; i++){
+            int index = repairTiles.items[i], x = index % width, y = index / width;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
+
+                int other = dx + dy * width;
+                if(searches[other] == search && weights[other] != impassable){
+                    path.frontier.addFirst(other);
+                }
+            }
+        }
+
+        //new targets may have appeared, e.g. from a core being placed
+        synchronized(path.targets){
+            for(int i = 0; i < path.targets.size; i++){
+                int pos = path.targets.get(i);
+                int index = Point2.x(pos) + Point2.y(pos) * width;
+
+                if(weights[index] != 0 || searches[index] != search){
+                    weights[index] = 0;
+                    searches[index] = search;
+                    path.frontier.addFirst(index);
+                }
+            }
+        }
+
+        path.repairSize = repairTiles.size;
+        path.request(requested, true);
+        return true;
+    }
+
     private void preloadPath(Flowfield path){
         path.targets.clear();
         path.getPositions(path.targets);
-        registerPath(path);
+        registerPath(path, Time.nanos());
         updateFrontier(path, -1);
     }
 
@@ -326,9 +627,11 @@ public class Pathfinder implements Runnable{
      * Created a new flowfield that aims to get to a certain target for a certain team.
      * Pathfinding thread only.
      */
-    private void registerPath(Flowfield path){
+    private void registerPath(Flowfield path, long requested){
         path.lastUpdateTime = Time.millis();
-        path.setup(tiles.length, tiles[0].length);
+        path.costs = getCosts(path.team, path.cost);
+        path.setup(width, height);
+        path.request(requested, false);
 
         threadList.add(path);
 
@@ -336,48 +639,90 @@ public class Pathfinder implements Runnable{
         Core.app.post(() -> mainList.add(path));
 
         //fill with impassables by default
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                path.weights[x][y] = impassable;
-            }
-        }
+        Arrays.fill(path.weights, impassable);
 
         //add targets
         for(int i = 0; i < path.targets.size; i++){
             int pos = path.targets.get(i);
-            path.weights[Point2.x(pos)][Point2.y(pos)] = 0;
-            path.frontier.addFirst(pos);
+            int index = Point2.x(pos) + Point2.y(pos) * width;
+            path.weights[index] = 0;
+            path.searches[index] = path.search;
+            path.frontier.addFirst(index);
         }
     }
 
-    /** Update the frontier for a path. Pathfinding thread only. */
+    /** @return the shared cost layer for a team and cost type, computing it if necessary. Pathfinding thread only. */
+    private int[] getCosts(Team team, PathCost cost){
+        for(CostLayer layer : layers){
+            if(layer.team == team && layer.cost == cost){
+                return layer.costs;
+            }
+        }
+
+        CostLayer layer = new CostLayer(team, cost, new int[tiles.length]);
+        for(int i = 0; i < tiles.length; i++){
+            layer.costs[i] = cost.getCost(team, tiles[i]);
+        }
+        layers.add(layer);
+        return layer.costs;
+    }
+
+    /** Update the frontier for a path. Pathfinding thread or workers only. */
     private void updateFrontier(Flowfield path, long nsToRun){
         long start = Time.nanos();
 
-        while(path.frontier.size > 0 && (nsToRun < 0 || Time.timeSinceNanos(start) <= nsToRun)){
-            Tile tile = world.tile(path.frontier.removeLast());
-            if(tile == null || path.weights == null) return; //something went horribly wrong, bail
-            int cost = path.weights[tile.x][tile.y];
+        if(path.waiting && path.frontier.size > 0){
+            path.waiting = false;
+            path.waitNanos = start - path.requestTime;
+        }
+
+        updateFrontierInternal(path, nsToRun, start);
+
+        path.frontierSize = path.frontier.size;
+        if(path.converging && path.frontier.isEmpty()){
+            path.converging = false;
+            if(path.repairing){
+                path.repairNanos = Time.nanos() - path.requestTime;
+            }else{
+                path.convergeNanos = Time.nanos() - path.requestTime;
+            }
+        }
+    }
+
+    private void updateFrontierInternal(Flowfield path, long nsToRun, long start){
+        int[] weights = path.weights, searches = path.searches, costs = path.costs;
+        if(weights == null) return;
+
+        IntQueue frontier = path.frontier;
+        int width = path.width, height = path.height, size = weights.length, search = path.search;
+
+        while(frontier.size > 0 && (nsToRun < 0 || Time.timeSinceNanos(start) <= nsToRun)){
+            int index = frontier.removeLast();
+            if(index < 0 || index >= size) return; //something went horribly wrong, bail
+            int cost = weights[index];
 
             //pathfinding overflowed for some reason, time to bail. the next block update will handle this, hopefully
-            if(path.frontier.size >= world.width() * world.height()){
-                path.frontier.clear();
+            if(frontier.size >= size){
+                frontier.clear();
                 return;
             }
 
             if(cost != impassable){
+                int x = index % width, y = index / width;
+
                 for(Point2 point : Geometry.d4){
 
-                    int dx = tile.x + point.x, dy = tile.y + point.y;
+                    int dx = x + point.x, dy = y + point.y;
 
-                    if(dx < 0 || dy < 0 || dx >= tiles.length || dy >= tiles[0].length) continue;
+                    if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
 
-                    int otherCost = path.cost.getCost(path.team, tiles[dx][dy]);
+                    int other = dx + dy * width;
+                    int otherCost = costs[other];
 
-                    if((path.weights[dx][dy] > cost + otherCost || path.searches[dx][dy] < path.search) && otherCost != impassable){
-                        path.frontier.addFirst(Point2.pack(dx, dy));
-                        path.weights[dx][dy] = cost + otherCost;
-                        path.searches[dx][dy] = (short)path.search;
+                    if((weights[other] > cost + otherCost || searches[other] < search) && otherCost != impassable){
+                        frontier.addFirst(other);
+                        weights[other] = cost + otherCost;
+                        searches[other] = search;
                     }
                 }
             }
@@ -435,30 +780,72 @@ public class Pathfinder implements Runnable{
         /** Function for calculating path cost. Set before using. */
         protected PathCost cost = costTypes.get(costGround);
 
-        /** costs of getting to a specific tile */
-        public int[][] weights;
+        /** costs of getting to a specific tile, indexed by x + y * width */
+        public int[] weights;
         /** search IDs of each position - the highest, most recent search is prioritized and overwritten */
-        public int[][] searches;
-        /** search frontier, these are Pos objects */
+        public int[] searches;
+        /** shared movement cost of each tile for this field's team and cost type */
+        int[] costs;
+        /** dimensions of the field */
+        public int width, height;
+        /** search frontier, these are tile indices */
         IntQueue frontier = new IntQueue();
         /** all target positions; these positions have a cost of 0, and must be synchronized on! */
         final IntSeq targets = new IntSeq();
+        /** next tile of hierarchical paths towards the targets, by tile index; used where no search has arrived yet. Main thread only. */
+        final IntIntMap waypoints = new IntIntMap();
         /** current search ID */
         int search = 1;
         /** last updated time */
         long lastUpdateTime;
         /** whether this flow field is ready to be used */
         boolean initialized;
+        /** last time this field was queried by a unit on the main thread */
+        volatile long lastQueried;
+        /** whether units have recently used this field; set by the pathfinding thread for scheduling */
+        boolean active;
+
+        /** time at which the current search was requested, in nanoseconds */
+        long requestTime;
+        /** whether the current search is waiting to be processed, converging, or a local repair, respectively */
+        boolean waiting, converging, repairing;
+        /** size of the frontier after the last update */
+        public volatile int frontierSize;
+        /** time between the last search request and its first frontier update, in nanoseconds */
+        public volatile long waitNanos;
+        /** time between the last full search request and the frontier becoming empty, in nanoseconds */
+        public volatile long convergeNanos;
+        /** time between the last local repair request and the frontier becoming empty, in nanoseconds */
+        public volatile long repairNanos;
+        /** amount of tiles recomputed by the last local repair */
+        public volatile int repairSize;
+
+        void request(long time, boolean repair){
+            requestTime = time;
+            repairing = repair;
+            waiting = converging = true;
+        }
+
+        public Team team(){
+            return team;
+        }
+
+        /** @return the index of this field's cost type in {@link #costTypes}. */
+        public int costType(){
+            return costTypes.indexOf(cost);
+        }
 
         void setup(int width, int height){
-            this.weights = new int[width][height];
-            this.searches = new int[width][height];
+            this.width = width;
+            this.height = height;
+            this.weights = new int[width * height];
+            this.searches = new int[width * height];
             this.frontier.ensureCapacity((width + height) * 3);
             this.initialized = true;
         }
 
         protected boolean passable(int x, int y){
-            return cost.getCost(team, pathfinder.tiles[x][y]) != impassable;
+            return costs[x + y * width] != impassable;
         }
 
         /** Gets targets to pathfind towards. This must run on the main thread. */
@@ -469,6 +856,19 @@ public class Pathfinder implements Runnable{
         int getCost(Team traversing, int tile);
     }
 
+    /** Precomputed costs of every tile for one team and cost type, shared between flow fields. */
+    static class CostLayer{
+        final Team team;
+        final PathCost cost;
+        final int[] costs;
+
+        CostLayer(Team team, PathCost cost, int[] costs){
+            this.team = team;
+            this.cost = cost;
+            this.costs = costs;
+        }
+    }
+
     /** Holds a copy of tile data for a specific tile position. */
     @Struct
     class PathTileStruct{
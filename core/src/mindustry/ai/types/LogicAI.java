@@ -145,6 +145,12 @@ public class LogicAI extends AIController{
         return true;
     }
 
+    //targets are picked by the processor, there is nothing to search for
+    @Override
+    protected boolean deferTargeting(){
+        return false;
+    }
+
     @Override
     protected boolean invalid(Teamc target){
         return false;
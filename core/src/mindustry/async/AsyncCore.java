@@ -9,9 +9,13 @@ import java.util.concurrent.*;
 import static mindustry.Vars.*;
 
 public class AsyncCore{
+    /** resolves unit target searches before the main update */
+    public final TargetingProcess targeting = new TargetingProcess();
+
     //all processes to be executed each frame
     private final Seq<AsyncProcess> processes = Seq.with(
-        new PhysicsProcess()
+        new PhysicsProcess(),
+        targeting
     );
 
     //futures to be awaited
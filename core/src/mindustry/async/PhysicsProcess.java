@@ -2,27 +2,37 @@ package mindustry.async;
 
 import arc.math.*;
 import arc.math.geom.*;
-import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
 import mindustry.*;
 import mindustry.async.PhysicsProcess.PhysicsWorld.*;
 import mindustry.entities.*;
+import mindustry.entities.SpatialGrid.*;
 import mindustry.gen.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 public class PhysicsProcess implements AsyncProcess{
     private static final int
-        layers = 3,
         layerGround = 0,
         layerLegs = 1,
         layerFlying = 2;
 
     private PhysicsWorld physics;
+    //used instead of physics when the gridPhysics rule is enabled
+    private GridPhysicsWorld grid;
     private Seq<PhysicRef> refs = new Seq<>(false);
     //currently only enabled for units
     private EntityGroup<Unit> group = Groups.unit;
 
     @Override
     public void begin(){
+        if(grid != null){
+            beginGrid();
+            return;
+        }
+
         if(physics == null) return;
 
         //remove stale entities
@@ -65,8 +75,45 @@ public class PhysicsProcess implements AsyncProcess{
         }
     }
 
+    private void beginGrid(){
+        //remove stale entities; removal swaps the last body in, so stay on the same index
+        for(int i = 0; i < grid.size;){
+            PhysicRef ref = grid.refs[i];
+            if(!ref.entity.isAdded()){
+                ref.entity.physref(null);
+                grid.remove(i);
+            }else{
+                i++;
+            }
+        }
+
+        for(Unit entity : group){
+            if(entity.type == null) continue;
+
+            PhysicRef ref = entity.physref;
+            if(ref == null){
+                ref = entity.physref = new PhysicRef(entity, null);
+                grid.add(ref);
+            }
+
+            int id = ref.id;
+            ref.x = grid.x[id] = entity.x();
+            ref.y = grid.y[id] = entity.y();
+            grid.mass[id] = entity.mass();
+            grid.radius[id] = entity.hitSize() / 2f;
+            grid.layer[id] =
+                entity.type.allowLegStep ? layerLegs :
+                entity.isGrounded() ? layerGround : layerFlying;
+        }
+    }
+
     @Override
     public void process(){
+        if(grid != null){
+            grid.update();
+            return;
+        }
+
         if(physics == null) return;
 
         //get last position vectors before step
@@ -81,6 +128,16 @@ public class PhysicsProcess implements AsyncProcess{
 
     @Override
     public void end(){
+        if(grid != null){
+            for(int i = 0; i < grid.size; i++){
+                PhysicRef ref = grid.refs[i];
+
+                //move by delta
+                ref.entity.move(grid.x[i] - ref.x, grid.y[i] - ref.y);
+            }
+            return;
+        }
+
         if(physics == null) return;
 
         //move entities
@@ -98,18 +155,31 @@ public class PhysicsProcess implements AsyncProcess{
             refs.clear();
             physics = null;
         }
+
+        if(grid != null){
+            grid.dispose();
+            grid = null;
+        }
     }
 
     @Override
     public void init(){
         reset();
 
-        physics = new PhysicsWorld(Vars.world.getQuadBounds(new Rect()));
+        Rect bounds = Vars.world.getQuadBounds(new Rect());
+        if(Vars.state.rules.gridPhysics){
+            grid = new GridPhysicsWorld(bounds);
+        }else{
+            physics = new PhysicsWorld(bounds);
+        }
     }
 
     public static class PhysicRef{
         public Physicsc entity;
-        public PhysicsBody body;
+        /** body in the default world; null when using the grid world */
+        public @Nullable PhysicsBody body;
+        /** index of the body in the grid world, or -1 */
+        public int id = -1;
         public float x, y;
 
         public PhysicRef(Physicsc entity, PhysicsBody body){
@@ -123,16 +193,15 @@ public class PhysicsProcess implements AsyncProcess{
         //how much to soften movement by
         private static final float scl = 1.25f;
 
-        private final QuadTree<PhysicsBody>[] trees = new QuadTree[layers];
+        //all layers share one index; queries filter by layer
+        private final SpatialGrid<PhysicsBody> index;
         private final Seq<PhysicsBody> bodies = new Seq<>(false, 16, PhysicsBody.class);
         private final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
         private final Rect rect = new Rect();
         private final Vec2 vec = new Vec2();
 
         public PhysicsWorld(Rect bounds){
-            for(int i = 0; i < layers; i++){
-                trees[i] = new QuadTree<>(new Rect(bounds));
-            }
+            index = new SpatialGrid<>(bounds);
         }
 
         public void add(PhysicsBody body){
@@ -141,17 +210,16 @@ public class PhysicsProcess implements AsyncProcess{
 
         public void remove(PhysicsBody body){
             bodies.remove(body);
+            index.remove(body);
         }
 
         public void update(){
-            for(int i = 0; i < layers; i++){
-                trees[i].clear();
-            }
+            index.flush();
 
             for(int i = 0; i < bodies.size; i++){
                 PhysicsBody body = bodies.items[i];
                 body.collided = false;
-                trees[body.layer].insert(body);
+                index.update(body);
             }
 
             for(int i = 0; i < bodies.size; i++){
@@ -159,12 +227,12 @@ public class PhysicsProcess implements AsyncProcess{
                 body.hitbox(rect);
 
                 seq.size = 0;
-                trees[body.layer].intersect(rect, seq);
+                index.intersect(rect, seq);
 
                 for(int j = 0; j < seq.size; j++){
                     PhysicsBody other = seq.items[j];
 
-                    if(other == body || other.collided) continue;
+                    if(other == body || other.collided || other.layer != body.layer) continue;
 
                     float rs = body.radius + other.radius;
                     float dst = Mathf.dst(body.x, body.y, other.x, other.y);
@@ -184,10 +252,21 @@ public class PhysicsProcess implements AsyncProcess{
             }
         }
 
-        public static class PhysicsBody implements QuadTreeObject{
+        public static class PhysicsBody implements Entry{
             public float x, y, radius, mass;
             public int layer = 0;
             public boolean collided = false;
+            public int gridCell = -1;
+
+            @Override
+            public int gridCell(){
+                return gridCell;
+            }
+
+            @Override
+            public void gridCell(int cell){
+                gridCell = cell;
+            }
 
             @Override
             public void hitbox(Rect out){
@@ -195,4 +274,197 @@ public class PhysicsProcess implements AsyncProcess{
             }
         }
     }
+
+    /**
+     * Multithreaded alternative to {@link PhysicsWorld}. Bodies are stored as arrays, and bucketed into a uniform grid with a counting sort every step.
+     * Each body gathers the separation from every body it overlaps using the positions at the start of the step, instead of bodies being pushed apart one pair at a time.
+     * This makes the result independent of the order bodies are processed in, so the bodies can be split across threads and still give the same result every time.
+     */
+    public static class GridPhysicsWorld{
+        //how much to soften movement by
+        private static final float scl = 1.25f;
+        //amount of bodies solved by each task
+        private static final int chunkSize = 256;
+
+        private final float boundX, boundY, boundW, boundH;
+        private final int threads = Math.min(OS.cores, 8);
+        private @Nullable ForkJoinPool pool;
+        private final Seq<ForkJoinTask<?>> tasks = new Seq<>();
+
+        /** amount of bodies; bodies are stored in [0, size) */
+        public int size;
+        public float[] x = new float[64], y = new float[64], radius = new float[64], mass = new float[64];
+        public int[] layer = new int[64];
+        /** owner of each body */
+        public PhysicRef[] refs = new PhysicRef[64];
+
+        //separation of each body for the current step
+        private float[] moveX = new float[64], moveY = new float[64];
+        //grid cell of each body, then bodies sorted by cell, and where each cell starts in the sorted bodies
+        private int[] bodyCells = new int[64], sorted = new int[64], cellStart = {};
+        private float cellSize;
+        private int width, height;
+
+        public GridPhysicsWorld(Rect bounds){
+            boundX = bounds.x;
+            boundY = bounds.y;
+            boundW = bounds.width;
+            boundH = bounds.height;
+        }
+
+        /** Adds a body for a ref and sets its id. The body's fields must be set before the next update. */
+        public void add(PhysicRef ref){
+            if(size == x.length){
+                int cap = size * 2;
+                x = Arrays.copyOf(x, cap);
+                y = Arrays.copyOf(y, cap);
+                radius = Arrays.copyOf(radius, cap);
+                mass = Arrays.copyOf(mass, cap);
+                layer = Arrays.copyOf(layer, cap);
+                refs = Arrays.copyOf(refs, cap);
+                moveX = new float[cap];
+                moveY = new float[cap];
+                bodyCells = new int[cap];
+                sorted = new int[cap];
+            }
+
+            ref.id = size;
+            refs[size++] = ref;
+        }
+
+        /** Removes a body by moving the last body into its place. */
+        public void remove(int id){
+            refs[id].id = -1;
+            int last = --size;
+
+            if(id != last){
+                x[id] = x[last];
+                y[id] = y[last];
+                radius[id] = radius[last];
+                mass[id] = mass[last];
+                layer[id] = layer[last];
+                refs[id] = refs[last];
+                refs[id].id = id;
+            }
+
+            refs[last] = null;
+        }
+
+        public void update(){
+            if(size == 0) return;
+
+            rebuild();
+
+            if(size <= chunkSize || threads <= 1){
+                solve(0, size);
+            }else{
+                if(pool == null){
+                    pool = new ForkJoinPool(threads);
+                }
+
+                for(int from = 0; from < size; from += chunkSize){
+                    int start = from, end = Math.min(from + chunkSize, size);
+                    tasks.add(pool.submit(() -> solve(start, end)));
+                }
+
+                for(ForkJoinTask<?> task : tasks){
+                    task.join();
+                }
+                tasks.clear();
+            }
+
+            for(int i = 0; i < size; i++){
+                x[i] += moveX[i];
+                y[i] += moveY[i];
+            }
+        }
+
+        public void dispose(){
+            if(pool != null){
+                pool.shutdown();
+                pool = null;
+            }
+        }
+
+        /** Buckets bodies into cells at least as big as the largest body, so overlaps are always in adjacent cells. */
+        private void rebuild(){
+            float maxSize = 0f;
+            for(int i = 0; i < size; i++){
+                maxSize = Math.max(maxSize, radius[i] * 2f);
+            }
+
+            float newSize = Math.max(maxSize, Vars.tilesize * 2f);
+            if(newSize > cellSize || cellStart.length == 0){
+                cellSize = newSize;
+                width = Math.max((int)(boundW / cellSize) + 1, 1);
+                height = Math.max((int)(boundH / cellSize) + 1, 1);
+                cellStart = new int[width * height + 1];
+            }else{
+                Arrays.fill(cellStart, 0);
+            }
+
+            //count bodies in each cell, then turn the counts into offsets
+            for(int i = 0; i < size; i++){
+                int cell = cellX(x[i]) + cellY(y[i]) * width;
+                bodyCells[i] = cell;
+                cellStart[cell + 1]++;
+            }
+
+            for(int i = 1; i < cellStart.length; i++){
+                cellStart[i] += cellStart[i - 1];
+            }
+
+            //bodies stay in index order within each cell, which keeps the result deterministic
+            for(int i = 0; i < size; i++){
+                sorted[cellStart[bodyCells[i]]++] = i;
+            }
+
+            //placing bodies moved each start to the start of the next cell
+            for(int i = cellStart.length - 1; i > 0; i--){
+                cellStart[i] = cellStart[i - 1];
+            }
+            cellStart[0] = 0;
+        }
+
+        /** Computes the separation of bodies in [from, to). Only writes to the separation of those bodies. */
+        private void solve(int from, int to){
+            for(int i = from; i < to; i++){
+                float bx = x[i], by = y[i], br = radius[i], bm = mass[i];
+                int bl = layer[i], cell = bodyCells[i], cx = cell % width, cy = cell / width;
+                float mx = 0f, my = 0f;
+
+                for(int ny = Math.max(cy - 1, 0); ny <= Math.min(cy + 1, height - 1); ny++){
+                    for(int nx = Math.max(cx - 1, 0); nx <= Math.min(cx + 1, width - 1); nx++){
+                        int other = nx + ny * width;
+
+                        for(int s = cellStart[other], end = cellStart[other + 1]; s < end; s++){
+                            int j = sorted[s];
+                            if(j == i || layer[j] != bl) continue;
+
+                            float rs = br + radius[j];
+                            float dx = bx - x[j], dy = by - y[j];
+                            float dst = Mathf.dst(dx, dy);
+
+                            if(dst < rs && dst > 0f){
+                                float scale = (rs - dst) / dst * mass[j] / (bm + mass[j]) / scl;
+                                mx += dx * scale;
+                                my += dy * scale;
+                            }
+                        }
+                    }
+                }
+
+                moveX[i] = mx;
+                moveY[i] = my;
+            }
+        }
+
+        private int cellX(float wx){
+            return Math.max(Math.min((int)((wx - boundX) / cellSize), width - 1), 0);
+        }
+
+        private int cellY(float wy){
+            return Math.max(Math.min((int)((wy - boundY) / cellSize), height - 1), 0);
+        }
+    }
 }
@@ -0,0 +1,207 @@
+package mindustry.async;
+
+import arc.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.entities.*;
+import mindustry.entities.Units.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Resolves unit target searches of turrets and unit AI in parallel, once per frame.
+ * Searches are queued during the update with {@link #submit(TargetRequest)}, and resolved at the start of the next frame, before the main update.
+ * Nothing moves or gets removed while the searches run, so they see a consistent snapshot of the unit index.
+ * Buildings are looked up afterwards on the main thread for requests that found no unit, as the block indexer is not thread-safe.
+ * When the process is not running (e.g. in tests or outside the game loop), requests are resolved immediately.
+ */
+public class TargetingProcess implements AsyncProcess{
+    /** minimum amount of requests to split across threads */
+    private static final int minParallel = 64;
+    /** amount of requests a thread claims at once */
+    private static final int chunkSize = 16;
+
+    private final int threads = Math.max(Math.min(OS.cores - 1, 7), 0);
+    private final @Nullable ExecutorService executor = threads == 0 ? null : Executors.newFixedThreadPool(threads, r -> {
+        Thread thread = new Thread(r, "Targeting-Thread");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) -> Core.app.post(() -> { throw new RuntimeException(e); }));
+        return thread;
+    });
+    /** one query context per thread; the first one belongs to the main thread */
+    private final UnitQuery[] queries = new UnitQuery[threads + 1];
+    private final Seq<Future<?>> futures = new Seq<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private Seq<TargetRequest> pending = new Seq<>(false, 64, TargetRequest.class), resolving = new Seq<>(false, 64, TargetRequest.class);
+    private boolean running;
+
+    /** Amount of requests resolved in the last frame. */
+    public int lastRequests;
+    /** Time spent resolving the requests of the last frame, in nanoseconds. */
+    public long lastNanos;
+
+    public TargetingProcess(){
+        for(int i = 0; i < queries.length; i++){
+            queries[i] = new UnitQuery();
+        }
+    }
+
+    /** Queues a request, or resolves it immediately if the process is not running. Main thread only. */
+    public void submit(TargetRequest request){
+        request.done = false;
+        request.result = null;
+
+        if(!running){
+            resolve(request, queries[0]);
+            publish(request);
+        }else if(!request.queued){
+            request.queued = true;
+            pending.add(request);
+        }
+    }
+
+    @Override
+    public void begin(){
+        running = true;
+        if(pending.isEmpty()) return;
+
+        long start = Time.nanos();
+
+        Seq<TargetRequest> swap = resolving;
+        resolving = pending;
+        pending = swap;
+
+        if(executor == null || resolving.size < minParallel){
+            for(int i = 0; i < resolving.size; i++){
+                resolve(resolving.items[i], queries[0]);
+            }
+        }else{
+            next.set(0);
+            futures.clear();
+
+            for(int i = 1; i < queries.length; i++){
+                UnitQuery query = queries[i];
+                futures.add(executor.submit(() -> work(query)));
+            }
+
+            //the main thread would be waiting anyway
+            work(queries[0]);
+
+            for(Future<?> future : futures){
+                try{
+                    future.get();
+                }catch(Throwable t){
+                    throw new RuntimeException(t);
+                }
+            }
+            futures.clear();
+        }
+
+        for(int i = 0; i < resolving.size; i++){
+            TargetRequest request = resolving.items[i];
+            request.queued = false;
+            publish(request);
+        }
+
+        lastRequests = resolving.size;
+        resolving.clear();
+        lastNanos = Time.timeSinceNanos(start);
+    }
+
+    @Override
+    public void reset(){
+        running = false;
+
+        for(TargetRequest request : pending){
+            request.queued = false;
+        }
+        pending.clear();
+        resolving.clear();
+    }
+
+    @Override
+    public boolean shouldProcess(){
+        return false;
+    }
+
+    private void work(UnitQuery query){
+        int total = resolving.size;
+        TargetRequest[] items = resolving.items;
+
+        for(int from = next.getAndAdd(chunkSize); from < total; from = next.getAndAdd(chunkSize)){
+            int to = Math.min(from + chunkSize, total);
+            for(int i = from; i < to; i++){
+                resolve(items[i], query);
+            }
+        }
+    }
+
+    private void resolve(TargetRequest request, UnitQuery query){
+        request.unit = request.sort == null ?
+            query.closestEnemy(request.team, request.x, request.y, request.range, request.predicate) :
+            query.bestEnemy(request.team, request.x, request.y, request.range, request.predicate, request.sort);
+    }
+
+    private void publish(TargetRequest request){
+        request.result = request.unit != null ? request.unit :
+            request.buildings ? Units.findEnemyTile(request.team, request.x, request.y, request.range, b -> true) :
+            null;
+        request.unit = null;
+        request.done = true;
+    }
+
+    /** A search for an enemy target. Requests are meant to be kept and reused by their owner. */
+    public static class TargetRequest{
+        public Team team = Team.derelict;
+        public float x, y, range;
+        public boolean air = true, ground = true;
+        /** Whether to look for an enemy building if no unit is found. */
+        public boolean buildings;
+        /**
+         * If null, the unit closest to the center is picked, like {@link Units#closestEnemy}.
+         * Otherwise, the unit with the lowest cost within range of its hitbox is picked, like {@link Units#bestEnemy}.
+         * Called from targeting threads; must not modify anything.
+         */
+        public @Nullable Sortf sort;
+        /** Filter for units. Called from targeting threads; must not modify anything. */
+        public Boolf<Unit> predicate = u -> u.checkTarget(air, ground);
+
+        /** Whether the result has been published and not taken yet. */
+        public boolean done;
+        public @Nullable Teamc result;
+
+        @Nullable Unit unit;
+        boolean queued;
+
+        public TargetRequest(){
+        }
+
+        public TargetRequest(Boolf<Unit> predicate){
+            this.predicate = predicate;
+        }
+
+        public TargetRequest set(Team team, float x, float y, float range, boolean air, boolean ground, boolean buildings){
+            this.team = team;
+            this.x = x;
+            this.y = y;
+            this.range = range;
+            this.air = air;
+            this.ground = ground;
+            this.buildings = buildings;
+            return this;
+        }
+
+        /** @return the published result, marking it as consumed. */
+        public @Nullable Teamc take(){
+            Teamc out = result;
+            result = null;
+            done = false;
+            return out;
+        }
+    }
+}
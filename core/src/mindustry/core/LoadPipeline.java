@@ -0,0 +1,125 @@
+package mindustry.core;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.util.concurrent.*;
+
+/**
+ * The stages of map loading that run between the tiles being filled in and the {@link mindustry.game.EventType.WorldLoadEvent}.
+ * Each stage only reads the tiles and fills in the data of the system that registered it; stages that do not depend on each other run in parallel.
+ * Work that needs the main thread, such as uploading textures, stays in the world load event handlers, and uses the data prepared here.
+ * The main thread waits for the pipeline to finish, so a stage may use shared temporaries like {@link arc.util.Tmp} as long as no other stage does.
+ */
+public class LoadPipeline{
+    private final int threads = Math.max(Math.min(OS.cores - 1, 4), 0);
+    private @Nullable ExecutorService executor;
+
+    private final Seq<Stage> stages = new Seq<>();
+    /** Timings of the last load. Stages that ran outside the pipeline, like the load event, are recorded by the world. */
+    private final Seq<Stage> timings = new Seq<>();
+    private long totalNanos;
+
+    /**
+     * Registers a stage that runs on every map load.
+     * @param after names of the stages that need to finish before this one starts.
+     */
+    public void add(String name, Runnable task, String... after){
+        Stage[] deps = new Stage[after.length];
+        for(int i = 0; i < after.length; i++){
+            String dep = after[i];
+            deps[i] = stages.find(s -> s.name.equals(dep));
+            if(deps[i] == null) throw new IllegalArgumentException("Stage '" + name + "' depends on unknown stage '" + dep + "'");
+        }
+
+        stages.add(new Stage(name, task, deps));
+    }
+
+    /** Clears the timings of the last load. */
+    public void begin(){
+        timings.clear();
+        totalNanos = 0;
+    }
+
+    /** Runs all registered stages, and waits for them to finish. */
+    public void run(){
+        long start = Time.nanos();
+
+        if(threads == 0){
+            //stages are registered after their dependencies, so they can run in order
+            for(Stage stage : stages){
+                stage.run();
+            }
+        }else{
+            if(executor == null){
+                executor = Executors.newFixedThreadPool(threads, r -> {
+                    Thread thread = new Thread(r, "Load-Thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+
+            for(Stage stage : stages){
+                CompletableFuture<?>[] deps = new CompletableFuture[stage.after.length];
+                for(int i = 0; i < deps.length; i++){
+                    deps[i] = stage.after[i].future;
+                }
+
+                stage.future = (deps.length == 0 ? CompletableFuture.runAsync(stage::run, executor) : CompletableFuture.allOf(deps).thenRunAsync(stage::run, executor));
+            }
+
+            try{
+                for(Stage stage : stages){
+                    stage.future.join();
+                }
+            }catch(CompletionException e){
+                throw new RuntimeException(e.getCause());
+            }finally{
+                for(Stage stage : stages){
+                    stage.future = null;
+                }
+            }
+        }
+
+        timings.addAll(stages);
+        totalNanos = Time.timeSinceNanos(start);
+    }
+
+    /** Records the time of a stage that ran outside the pipeline, e.g. on the main thread. */
+    public void record(String name, long nanos){
+        Stage stage = new Stage(name, null, new Stage[0]);
+        stage.nanos = nanos;
+        timings.add(stage);
+    }
+
+    /** @return a line per stage of the last load, with the time it took. Stages in the pipeline overlap, so their sum may exceed the total. */
+    public String report(){
+        StringBuilder out = new StringBuilder();
+        for(Stage stage : timings){
+            out.append(Strings.format("| @: @ms\n", stage.name, Strings.fixed(stage.nanos / 1000000f, 2)));
+        }
+        out.append(Strings.format("| parallel stages: @ms total on @ threads", Strings.fixed(totalNanos / 1000000f, 2), Math.max(threads, 1)));
+        return out.toString();
+    }
+
+    private static class Stage{
+        final String name;
+        final @Nullable Runnable task;
+        final Stage[] after;
+        long nanos;
+        @Nullable CompletableFuture<?> future;
+
+        Stage(String name, @Nullable Runnable task, Stage[] after){
+            this.name = name;
+            this.task = task;
+            this.after = after;
+        }
+
+        void run(){
+            long start = Time.nanos();
+            task.run();
+            nanos = Time.timeSinceNanos(start);
+        }
+    }
+}
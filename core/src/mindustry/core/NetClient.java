@@ -34,6 +34,8 @@ import static mindustry.Vars.*;
 public class NetClient implements ApplicationListener{
     private static final float dataTimeout = 60 * 18;
     private static final float playerSyncTime = 2;
+    /** Delta snapshots after which an unanswered full snapshot request is sent again, in case its answer was lost. */
+    private static final int fullSnapshotTimeout = 60;
     public static final float viewScale = 2f;
 
     private long ping;
@@ -48,6 +50,16 @@ public class NetClient implements ApplicationListener{
     private float timeoutTime = 0f;
     /** Last sent client snapshot ID. */
     private int lastSent;
+    /** Sequence number of the last received delta snapshot. */
+    private int lastSnapshotSequence = -1;
+    /** Sequence number of the last received delta snapshot when a full snapshot was requested, or -1 if no request is pending. */
+    private int fullSnapshotRequest = -1;
+    /** Latest entity snapshot round that packets were received for, and the amount of its packets received. */
+    private int snapshotRound = -1, snapshotPackets;
+    /** Latest entity snapshot round of which every packet was received. Sent to the server, which resends new entities until this passes the round they were first sent in. */
+    private int completeSnapshotRound = -1;
+    /** IDs of entities that left this client's relevance range, mapped to the snapshot round they left in. */
+    private IntIntMap leftEntities = new IntIntMap();
 
     /** List of entities that were removed, and need not be added while syncing. */
     private IntSet removed = new IntSet();
@@ -376,6 +388,7 @@ public class NetClient implements ApplicationListener{
     public static void worldDataBegin(){
         Groups.clear();
         netClient.removed.clear();
+        netClient.leftEntities.clear();
         logic.reset();
         netClient.connecting = true;
 
@@ -405,7 +418,9 @@ public class NetClient implements ApplicationListener{
     }
 
     @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
-    public static void entitySnapshot(short amount, short dataLen, byte[] data){
+    public static void entitySnapshot(int round, short packets, short amount, short dataLen, byte[] data){
+        netClient.receivedSnapshotPacket(round, packets);
+
         try{
             netClient.byteStream.setBytes(net.decompressSnapshot(data, dataLen));
             DataInputStream input = netClient.dataStream;
@@ -435,6 +450,8 @@ public class NetClient implements ApplicationListener{
                 //read the entity
                 entity.readSync(Reads.get(input));
 
+                if(netClient.isStaleRecord(entity, created, round)) continue;
+
                 if(created){
                     //snap initial starting position
                     entity.snapSync();
@@ -450,6 +467,97 @@ public class NetClient implements ApplicationListener{
         }
     }
 
+    @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
+    public static void entityDeltaSnapshot(int round, short packets, int sequence, short amount, short dataLen, byte[] data){
+        //out-of-order snapshots are stale; a gap means changes were lost, so the next snapshot must be complete
+        if(sequence <= netClient.lastSnapshotSequence) return;
+        boolean gap = sequence != netClient.lastSnapshotSequence + 1;
+        netClient.lastSnapshotSequence = sequence;
+        netClient.receivedSnapshotPacket(round, packets);
+
+        if(gap){
+            netClient.requestFullSnapshot();
+        }
+
+        boolean allFull = amount > 0;
+
+        try{
+            netClient.byteStream.setBytes(net.decompressSnapshot(data, dataLen));
+            DataInputStream input = netClient.dataStream;
+
+            for(int j = 0; j < amount; j++){
+                int id = input.readInt();
+                byte typeID = input.readByte();
+                boolean full = input.readBoolean();
+                allFull &= full;
+
+                Syncc entity = Groups.sync.getByID(id);
+                boolean add = false, created = false;
+
+                if(entity == null && id == player.id()){
+                    entity = player;
+                    add = true;
+                }
+
+                //entity must not be added yet, so create it
+                if(entity == null){
+                    entity = (Syncc)EntityMapping.map(typeID).get();
+                    entity.id(id);
+                    if(!netClient.isEntityUsed(entity.id())){
+                        add = true;
+                    }
+                    created = true;
+                }
+
+                //read the changed fields
+                entity.readSyncDelta(Reads.get(input));
+
+                //an entity can't be created from partial state; discard it and wait for the full version
+                if(created && !full){
+                    netClient.requestFullSnapshot();
+                    continue;
+                }
+
+                if(netClient.isStaleRecord(entity, created, round)) continue;
+
+                if(created){
+                    //snap initial starting position
+                    entity.snapSync();
+                }
+
+                if(add){
+                    entity.add();
+                    netClient.addRemovedEntity(entity.id());
+                }
+            }
+
+            //a newer snapshot with only full records means the server reset every baseline, so the request was answered
+            int request = netClient.fullSnapshotRequest;
+            if(request != -1 && sequence > request && (allFull || sequence - request > fullSnapshotTimeout)){
+                netClient.fullSnapshotRequest = -1;
+            }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Called when entities are no longer relevant to this client, and should be removed until they are synced again. */
+    @Remote(variants = Variant.one, priority = PacketPriority.low)
+    public static void entityLeave(int round, int[] ids){
+        for(int id : ids){
+            //leaves are reliable but snapshots are not, so older snapshot records of this entity may still arrive
+            netClient.leftEntities.put(id, round);
+
+            Syncc entity = Groups.sync.getByID(id);
+            //the entity was synced again after it left, and this leave arrived late
+            if(entity == null || entity == player || entity == player.unit() || entity.syncRound() > round) continue;
+
+            entity.remove();
+            //the entity may become relevant again, so it must not be marked as removed
+            netClient.clearRemovedEntity(id);
+        }
+    }
+
     @Remote(variants = Variant.both, priority = PacketPriority.low, unreliable = true)
     public static void blockSnapshot(short amount, short dataLen, byte[] data){
         try{
@@ -558,6 +666,12 @@ public class NetClient implements ApplicationListener{
         quietReset = false;
         quiet = false;
         lastSent = 0;
+        lastSnapshotSequence = -1;
+        fullSnapshotRequest = -1;
+        snapshotRound = -1;
+        snapshotPackets = 0;
+        completeSnapshotRound = -1;
+        leftEntities.clear();
 
         Groups.clear();
         ui.chatfrag.clearMessages();
@@ -585,6 +699,46 @@ public class NetClient implements ApplicationListener{
         quiet = true;
     }
 
+    /**
+     * Asks the server to send every entity in full, as the state of some entities is no longer known.
+     * Further requests are ignored until a snapshot newer than the request contains only full records, which means the server has reset its baselines.
+     */
+    void requestFullSnapshot(){
+        if(fullSnapshotRequest != -1) return;
+
+        fullSnapshotRequest = lastSnapshotSequence;
+        Call.requestFullSnapshot();
+    }
+
+    /** Counts a received entity snapshot packet towards its round, which is complete once all of its packets have arrived. */
+    void receivedSnapshotPacket(int round, int packets){
+        if(round < snapshotRound) return;
+
+        if(round > snapshotRound){
+            snapshotRound = round;
+            snapshotPackets = 0;
+        }
+
+        if(++snapshotPackets >= packets){
+            completeSnapshotRound = round;
+        }
+    }
+
+    /**
+     * Checks a snapshot record that was just read, and records the latest round the entity was synced in.
+     * @return whether the record would create an entity that has already left, and must be discarded.
+     */
+    boolean isStaleRecord(Syncc entity, boolean created, int round){
+        if(created){
+            //the record was sent before the entity left; creating it again would leave a ghost that is never updated or removed
+            if(round <= leftEntities.get(entity.id(), -1)) return true;
+            leftEntities.remove(entity.id(), -1);
+        }
+
+        entity.syncRound(Math.max(entity.syncRound(), round));
+        return false;
+    }
+
     public void clearRemovedEntity(int id){
         removed.remove(id);
     }
@@ -631,6 +785,7 @@ public class NetClient implements ApplicationListener{
 
             Call.clientSnapshot(
             lastSent++,
+            completeSnapshotRound,
             uid,
             player.dead(),
             player.dead() ? player.x : unit.x, player.dead() ? player.y : unit.y,
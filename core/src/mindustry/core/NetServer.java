@@ -6,6 +6,7 @@ import arc.graphics.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
+import arc.struct.IntSet.*;
 import arc.util.*;
 import arc.util.CommandHandler.*;
 import arc.util.io.*;
@@ -35,11 +36,20 @@ import static mindustry.Vars.*;
 
 public class NetServer implements ApplicationListener{
     /** note that snapshots are compressed, so the max snapshot size here is above the typical UDP safe limit */
-    private static final int maxSnapshotSize = 800, timerBlockSync = 0;
+    private static final int maxSnapshotSize = 800, timerBlockSync = 0, timerEntitySync = 1;
     private static final float serverSyncTime = 12, blockSyncTime = 60 * 6;
+    /** Every this many block snapshots, all synced buildings are sent regardless of whether they changed. */
+    private static final int blockFullSyncInterval = 5;
+    /** Entities this far outside a player's viewport are synced every snapshot; further out, only every {@link #farSyncInterval} snapshots. */
+    private static final float syncNearMargin = tilesize * 8f, syncFarMargin = tilesize * 24f;
+    private static final int farSyncInterval = 3;
+    /** Amount of snapshots between checks for baselines of entities that no longer exist. */
+    private static final int baselinePruneInterval = 60;
+    /** Size of the spatial cells that shared entity snapshots are grouped by, in world units. */
+    private static final int syncCellSize = tilesize * 32;
     private static final FloatBuffer fbuffer = FloatBuffer.allocate(20);
     private static final Vec2 vector = new Vec2();
-    private static final Rect viewport = new Rect();
+    private static final Rect viewport = new Rect(), nearViewport = new Rect(), farViewport = new Rect();
     /** If a player goes away of their server-side coordinates by this distance, they get teleported back. */
     private static final float correctDist = tilesize * 12f;
 
@@ -65,8 +75,14 @@ public class NetServer implements ApplicationListener{
         return state.rules.defaultTeam;
     };
 
+    /** Nanoseconds spent serializing and compressing entity snapshots, during the last tick that wrote any. */
+    public long lastSerializeNanos, lastCompressNanos;
+    /** Uncompressed bytes of block snapshot data sent, indexed by block ID. */
+    public long[] blockSyncBytes = {};
+
     private boolean closing = false;
-    private Interval timer = new Interval();
+    private Interval timer = new Interval(2);
+    private int blockSnapshotsSent;
 
     private ReusableByteOutStream writeBuffer = new ReusableByteOutStream(127);
     private Writes outputBuffer = new Writes(new DataOutputStream(writeBuffer));
@@ -75,6 +91,24 @@ public class NetServer implements ApplicationListener{
     private ReusableByteOutStream syncStream = new ReusableByteOutStream();
     /** Data stream for writing player sync data to. */
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
+    /** Entities that will be written in the current entity snapshot. */
+    private Seq<Syncc> syncQueue = new Seq<>();
+    /** IDs of entities relevant to the player currently being synced. Swapped with the connection's set after each snapshot. */
+    private IntSet relevantEntities = new IntSet();
+    /** IDs of entities that have left a player's relevance range. */
+    private IntSeq leftEntities = new IntSeq();
+    /** Serialized entity records shared by all players, grouped by spatial cell. Rebuilt every frame that entities are synced. */
+    private Seq<SyncChunk>[] cellChunks;
+    private Seq<Syncc>[] cellEntities;
+    private int cellsWidth, cellsHeight;
+    private long sharedChunksFrame = -1;
+    /** Chunks of entities that are relevant to every player, such as players and weather. */
+    private Seq<SyncChunk> globalChunks = new Seq<>(), sharedChunks = new Seq<>(), chunkPool = new Seq<>();
+    private Seq<Syncc> globalEntities = new Seq<>();
+    /** Packets of the entity snapshot currently being written. Sent together at the end, so each one can carry the amount of packets in the snapshot. */
+    private Seq<SyncChunk> outChunks = new Seq<>();
+    /** Nanoseconds spent serializing and compressing entity snapshots in the current tick. */
+    private long serializeNanos, compressNanos;
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons2<Player, String>>> customPacketHandlers = new ObjectMap<>();
 
@@ -503,6 +537,11 @@ public class NetServer implements ApplicationListener{
         data.stream = new ByteArrayInputStream(stream.toByteArray());
         player.con.sendStream(data);
 
+        //the client discards all entities when loading the world, so everything must be sent again
+        player.con.syncedEntities.clear();
+        player.con.unconfirmedEntities.clear();
+        player.con.syncBaselines.clear();
+
         debug("Packed @ bytes of world data.", stream.size());
     }
 
@@ -550,6 +589,16 @@ public class NetServer implements ApplicationListener{
         serverPacketReliable(player, type, contents);
     }
 
+    /** Called when a client has missed a delta snapshot, and needs every entity to be written in full again. */
+    @Remote(targets = Loc.client, priority = PacketPriority.high)
+    public static void requestFullSnapshot(Player player){
+        if(player.con == null) return;
+
+        for(SyncBaseline baseline : player.con.syncBaselines.values()){
+            baseline.invalid = true;
+        }
+    }
+
     private static boolean invalid(float f){
         return Float.isInfinite(f) || Float.isNaN(f);
     }
@@ -558,6 +607,7 @@ public class NetServer implements ApplicationListener{
     public static void clientSnapshot(
         Player player,
         int snapshotID,
+        int entitySnapshotRound,
         int unitID,
         boolean dead,
         float x, float y,
@@ -590,6 +640,7 @@ public class NetServer implements ApplicationListener{
         con.viewY = viewY;
         con.viewWidth = viewWidth;
         con.viewHeight = viewHeight;
+        con.confirmedSnapshotRound = Math.max(con.confirmedSnapshotRound, entitySnapshotRound);
 
         //disable shooting when a mech flies
         if(!player.dead() && player.unit().isFlying() && player.unit() instanceof Mechc){
@@ -782,6 +833,10 @@ public class NetServer implements ApplicationListener{
 
     @Override
     public void update(){
+        if(net.server()){
+            handlePackets();
+        }
+
         if(!headless && !closing && net.server() && state.isMenu()){
             closing = true;
             ui.loadfrag.show("@server.closing");
@@ -801,6 +856,14 @@ public class NetServer implements ApplicationListener{
         }
     }
 
+    /** Handles packets received from every connection since the last update, up to the configured per-connection budget. */
+    void handlePackets(){
+        int budget = Config.packetBudget.num();
+        for(NetConnection con : net.getConnections()){
+            con.handleQueued(budget);
+        }
+    }
+
     /** Should only be used on the headless backend. */
     public void openServer(){
         try{
@@ -821,18 +884,28 @@ public class NetServer implements ApplicationListener{
         }
     }
 
-    /** Sends a block snapshot to all players. */
+    /** Sends a block snapshot to all players. Only buildings that changed since the last snapshot are included, except for periodic full snapshots. */
     public void writeBlockSnapshots() throws IOException{
         syncStream.reset();
 
+        if(blockSyncBytes.length != content.blocks().size){
+            blockSyncBytes = new long[content.blocks().size];
+        }
+
+        boolean full = blockSnapshotsSent++ % blockFullSyncInterval == 0;
         short sent = 0;
         for(Building entity : Groups.build){
-            if(!entity.block.sync) continue;
+            if(!entity.block.sync || (!full && !entity.needsSync())) continue;
             sent ++;
 
+            int start = syncStream.size();
+
             dataStream.writeInt(entity.pos());
             dataStream.writeShort(entity.block.id);
             entity.writeAll(Writes.get(dataStream));
+            entity.synced();
+
+            blockSyncBytes[entity.block.id] += syncStream.size() - start;
 
             if(syncStream.size() > maxSnapshotSize){
                 dataStream.close();
@@ -869,36 +942,392 @@ public class NetServer implements ApplicationListener{
         //write basic state data.
         Call.stateSnapshot(player.con, state.wavetime, state.wave, state.enemies, state.serverPaused, state.gameOver, universe.seconds(), (short)stateBytes.length, net.compressSnapshot(stateBytes));
 
-        viewport.setSize(player.con.viewWidth, player.con.viewHeight).setCenter(player.con.viewX, player.con.viewY);
+        if(Config.deltaSnapshots.bool()){
+            writeDeltaEntitySnapshot(player);
+        }else{
+            player.con.syncBaselines.clear();
+            writeSharedEntitySnapshot(player);
+        }
+    }
+
+    /**
+     * Writes entities to this player, encoded as a delta against the last state sent to them.
+     * Baselines advance as soon as a snapshot is written, not when the client acknowledges it, so a lost packet leaves the client behind.
+     * Loss recovery depends on the client detecting the gap in sequence numbers and calling {@link #requestFullSnapshot(Player)}.
+     */
+    void writeDeltaEntitySnapshot(Player player) throws IOException{
+        long start = Time.nanos(), compressStart = compressNanos;
+        NetConnection con = player.con;
+        boolean culling = Config.snapshotCulling.bool();
+
+        if(culling){
+            queueRelevantEntities(player);
+        }else{
+            con.syncedEntities.clear();
+            con.unconfirmedEntities.clear();
+        }
+
+        if(con.snapshotsSent % baselinePruneInterval == 0){
+            //remove baselines of entities that no longer exist
+            IntMap.Keys keys = con.syncBaselines.keys();
+            while(keys.hasNext){
+                if(Groups.sync.getByID(keys.next()) == null){
+                    keys.remove();
+                }
+            }
+        }
 
         syncStream.reset();
 
-        int sent = 0;
+        int sent = 0, total = 0;
+        Iterable<Syncc> entities = culling ? syncQueue : Groups.sync;
 
-        for(Syncc entity : Groups.sync){
+        for(Syncc entity : entities){
             //write all entities now
             dataStream.writeInt(entity.id()); //write id
             dataStream.writeByte(entity.classId()); //write type ID
-            entity.writeSync(Writes.get(dataStream)); //write entity
+
+            SyncBaseline baseline = con.syncBaselines.get(entity.id());
+            if(baseline == null){
+                con.syncBaselines.put(entity.id(), baseline = new SyncBaseline());
+            }
+
+            //the first packet of an entity may have been lost, so it is sent in full until the client confirms it
+            if(con.unconfirmedEntities.containsKey(entity.id())){
+                baseline.invalid = true;
+            }
+
+            //clients can't create entities from partial data, so they need to know whether all fields are present
+            dataStream.writeBoolean(baseline.invalid);
+            entity.writeSyncDelta(Writes.get(dataStream), baseline); //write changed fields
 
             sent++;
+            total++;
 
             if(syncStream.size() > maxSnapshotSize){
-                dataStream.close();
-                byte[] syncBytes = syncStream.toByteArray();
-                Call.entitySnapshot(player.con, (short)sent, (short)syncBytes.length, net.compressSnapshot(syncBytes));
+                queueDeltaChunk(sent);
                 sent = 0;
-                syncStream.reset();
             }
         }
 
         if(sent > 0){
-            dataStream.close();
+            queueDeltaChunk(sent);
+        }
+
+        finishEntitySnapshot(con, total, culling, true);
+        serializeNanos += Time.timeSinceNanos(start) - (compressNanos - compressStart);
+    }
+
+    /** Writes entities to this player using the records shared between all players in this frame. */
+    void writeSharedEntitySnapshot(Player player) throws IOException{
+        if(sharedChunksFrame != Core.graphics.getFrameId()){
+            buildSharedChunks();
+        }
+
+        NetConnection con = player.con;
+        boolean culling = Config.snapshotCulling.bool();
+        int total = 0;
+
+        if(!culling){
+            con.syncedEntities.clear();
+            con.unconfirmedEntities.clear();
+
+            for(SyncChunk chunk : sharedChunks){
+                sendChunk(con, chunk);
+                total += chunk.amount;
+            }
+        }else{
+            boolean farUpdate = con.snapshotsSent % farSyncInterval == 0;
+
+            nearViewport.setSize(con.viewWidth + syncNearMargin * 2f, con.viewHeight + syncNearMargin * 2f).setCenter(con.viewX, con.viewY);
+            farViewport.setSize(con.viewWidth + syncFarMargin * 2f, con.viewHeight + syncFarMargin * 2f).setCenter(con.viewX, con.viewY);
+
+            relevantEntities.clear();
+
+            for(SyncChunk chunk : globalChunks){
+                total += sendRelevantChunk(con, chunk, true);
+            }
+
+            int minx = cellX(farViewport.x), maxx = cellX(farViewport.x + farViewport.width);
+            int miny = cellY(farViewport.y), maxy = cellY(farViewport.y + farViewport.height);
+
+            for(int cx = minx; cx <= maxx; cx++){
+                for(int cy = miny; cy <= maxy; cy++){
+                    boolean near = nearViewport.overlaps(cx * syncCellSize, cy * syncCellSize, syncCellSize, syncCellSize);
+
+                    for(SyncChunk chunk : cellChunks[cx + cy * cellsWidth]){
+                        total += sendRelevantChunk(con, chunk, near || farUpdate);
+                    }
+                }
+            }
+
+            //the player's own unit is always relevant, even if it is far away from the view
+            Unit unit = player.unit();
+            if(unit != null && unit.isAdded() && !relevantEntities.contains(unit.id)){
+                for(SyncChunk chunk : cellChunks[cellX(unit.x) + cellY(unit.y) * cellsWidth]){
+                    total += sendRelevantChunk(con, chunk, true);
+                }
+            }
+
+            updateRelevance(con);
+        }
+
+        finishEntitySnapshot(con, total, culling, false);
+    }
+
+    /** Marks every entity in this chunk as relevant, and sends it if requested or if it contains entities the client may not have. */
+    private int sendRelevantChunk(NetConnection con, SyncChunk chunk, boolean write){
+        boolean unknown = false;
+        for(int i = 0; i < chunk.ids.size; i++){
+            int id = chunk.ids.items[i];
+            relevantEntities.add(id);
+            unknown |= unknown(con, id);
+        }
+
+        if(write || unknown){
+            sendChunk(con, chunk);
+            return chunk.amount;
+        }
+        return 0;
+    }
+
+    private void sendChunk(NetConnection con, SyncChunk chunk){
+        outChunks.add(chunk);
+    }
+
+    /** Compresses the delta records written so far into a packet for the current player. */
+    private void queueDeltaChunk(int amount) throws IOException{
+        dataStream.close();
+        byte[] syncBytes = syncStream.toByteArray();
+        SyncChunk chunk = obtainChunk();
+        chunk.amount = amount;
+        chunk.length = syncBytes.length;
+        chunk.data = compressSnapshot(syncBytes);
+        outChunks.add(chunk);
+        syncStream.reset();
+    }
+
+    /**
+     * Serializes and compresses every synced entity once for this frame, grouped into spatial cells.
+     * Player snapshots are then assembled from these chunks, so the cost of serialization does not grow with the player count.
+     */
+    void buildSharedChunks() throws IOException{
+        long start = Time.nanos(), compressStart = compressNanos;
+        sharedChunksFrame = Core.graphics.getFrameId();
+
+        int width = world.width() * tilesize / syncCellSize + 1, height = world.height() * tilesize / syncCellSize + 1;
+        if(cellChunks == null || width != cellsWidth || height != cellsHeight){
+            cellsWidth = width;
+            cellsHeight = height;
+            cellChunks = new Seq[width * height];
+            cellEntities = new Seq[width * height];
+            for(int i = 0; i < cellChunks.length; i++){
+                cellChunks[i] = new Seq<>();
+                cellEntities[i] = new Seq<>();
+            }
+        }
+
+        chunkPool.addAll(sharedChunks);
+        sharedChunks.clear();
+        globalChunks.clear();
+        globalEntities.clear();
+        for(int i = 0; i < cellChunks.length; i++){
+            cellChunks[i].clear();
+            cellEntities[i].clear();
+        }
+
+        for(Syncc entity : Groups.sync){
+            //players are always relevant, so they go with non-positional entities
+            if(entity instanceof Posc pos && !(entity instanceof Player)){
+                cellEntities[cellX(pos.x()) + cellY(pos.y()) * cellsWidth].add(entity);
+            }else{
+                globalEntities.add(entity);
+            }
+        }
+
+        writeChunks(globalEntities, globalChunks);
+        for(int i = 0; i < cellChunks.length; i++){
+            writeChunks(cellEntities[i], cellChunks[i]);
+        }
+
+        serializeNanos += Time.timeSinceNanos(start) - (compressNanos - compressStart);
+    }
+
+    private void writeChunks(Seq<Syncc> entities, Seq<SyncChunk> out) throws IOException{
+        if(entities.isEmpty()) return;
+
+        syncStream.reset();
+        SyncChunk chunk = obtainChunk();
+
+        for(Syncc entity : entities){
+            dataStream.writeInt(entity.id()); //write id
+            dataStream.writeByte(entity.classId()); //write type ID
+            entity.writeSync(Writes.get(dataStream)); //write entity
+
+            chunk.amount++;
+            chunk.ids.add(entity.id());
+
+            if(syncStream.size() > maxSnapshotSize){
+                finishChunk(chunk, out);
+                chunk = obtainChunk();
+            }
+        }
+
+        if(chunk.amount > 0){
+            finishChunk(chunk, out);
+        }else{
+            chunkPool.add(chunk);
+        }
+    }
+
+    private void finishChunk(SyncChunk chunk, Seq<SyncChunk> out) throws IOException{
+        dataStream.close();
+        byte[] syncBytes = syncStream.toByteArray();
+        chunk.length = syncBytes.length;
+        chunk.data = compressSnapshot(syncBytes);
+        out.add(chunk);
+        sharedChunks.add(chunk);
+        syncStream.reset();
+    }
+
+    private SyncChunk obtainChunk(){
+        SyncChunk chunk = chunkPool.isEmpty() ? new SyncChunk() : chunkPool.pop();
+        chunk.amount = 0;
+        chunk.ids.clear();
+        return chunk;
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int)(x / syncCellSize), 0, cellsWidth - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int)(y / syncCellSize), 0, cellsHeight - 1);
+    }
+
+    private byte[] compressSnapshot(byte[] bytes){
+        long start = Time.nanos();
+        byte[] result = net.compressSnapshot(bytes);
+        compressNanos += Time.timeSinceNanos(start);
+        return result;
+    }
 
-            byte[] syncBytes = syncStream.toByteArray();
-            Call.entitySnapshot(player.con, (short)sent, (short)syncBytes.length, net.compressSnapshot(syncBytes));
+    /**
+     * Sends the packets of this snapshot, then the entities that left.
+     * Every packet is tagged with the snapshot round, so the client can discard stale records of entities that already left,
+     * and confirm rounds of which it received every packet.
+     */
+    private void finishEntitySnapshot(NetConnection con, int total, boolean culling, boolean delta){
+        int round = con.snapshotsSent;
+        short packets = (short)outChunks.size;
+
+        for(SyncChunk chunk : outChunks){
+            if(delta){
+                Call.entityDeltaSnapshot(con, round, packets, con.snapshotSequence++, (short)chunk.amount, (short)chunk.length, chunk.data);
+            }else{
+                Call.entitySnapshot(con, round, packets, (short)chunk.amount, (short)chunk.length, chunk.data);
+            }
+        }
+
+        //delta chunks are specific to this player, shared chunks are recycled when they are rebuilt
+        if(delta){
+            chunkPool.addAll(outChunks);
+        }
+        outChunks.clear();
+
+        if(culling && leftEntities.size > 0){
+            Call.entityLeave(con, round, leftEntities.toArray());
+        }
+
+        con.snapshotsSent++;
+        con.lastEntitiesSynced = total;
+        con.totalEntitiesSynced += total;
+    }
+
+    /**
+     * Fills {@link #syncQueue} with the entities that should be written to this player in the current snapshot,
+     * and {@link #leftEntities} with the IDs of entities that are no longer relevant to them.
+     * Entities close to the viewport are written every snapshot, entities in the outer ring less frequently.
+     */
+    void queueRelevantEntities(Player player){
+        NetConnection con = player.con;
+        boolean farUpdate = con.snapshotsSent % farSyncInterval == 0;
+
+        nearViewport.setSize(con.viewWidth + syncNearMargin * 2f, con.viewHeight + syncNearMargin * 2f).setCenter(con.viewX, con.viewY);
+        farViewport.setSize(con.viewWidth + syncFarMargin * 2f, con.viewHeight + syncFarMargin * 2f).setCenter(con.viewX, con.viewY);
+
+        syncQueue.clear();
+        relevantEntities.clear();
+
+        //units are looked up through the quadtree, as they make up the bulk of synced entities
+        Groups.unit.intersect(farViewport.x, farViewport.y, farViewport.width, farViewport.height, unit -> {
+            queueRelevant(con, unit, farUpdate || nearViewport.contains(unit.x, unit.y));
+        });
+
+        for(Syncc entity : Groups.sync){
+            //players, the player's own unit and non-positional entities (weather) are always relevant
+            if(entity instanceof Player || entity == player.unit() || !(entity instanceof Posc)){
+                queueRelevant(con, entity, true);
+            }else if(!(entity instanceof Unit)){
+                Posc pos = (Posc)entity;
+                if(farViewport.contains(pos.x(), pos.y())){
+                    queueRelevant(con, entity, farUpdate || nearViewport.contains(pos.x(), pos.y()));
+                }
+            }
+        }
+
+        updateRelevance(con);
+    }
+
+    /** Collects entities that are no longer in {@link #relevantEntities} and makes it the connection's known set. */
+    private void updateRelevance(NetConnection con){
+        leftEntities.clear();
+
+        IntSetIterator it = con.syncedEntities.iterator();
+        while(it.hasNext){
+            int id = it.next();
+            if(!relevantEntities.contains(id)){
+                leftEntities.add(id);
+                //the client removes the entity, so it must be sent in full when it becomes relevant again
+                con.syncBaselines.remove(id);
+                con.unconfirmedEntities.remove(id, -1);
+            }
+        }
+
+        //the relevant set becomes the connection's new known set; reuse the old one next time
+        IntSet last = con.syncedEntities;
+        con.syncedEntities = relevantEntities;
+        relevantEntities = last;
+    }
+
+    private void queueRelevant(NetConnection con, Syncc entity, boolean write){
+        if(relevantEntities.contains(entity.id())) return;
+        relevantEntities.add(entity.id());
+
+        //entities the client may not have yet must always be written, as they would otherwise not exist
+        if(write || unknown(con, entity.id())){
+            syncQueue.add(entity);
+        }
+    }
+
+    /**
+     * @return whether the client may not have this entity, because it was not relevant before or its first packets may have been lost.
+     * Newly relevant entities stay unconfirmed, and are written every snapshot, until the client confirms a snapshot round at least as recent as the first one they were written in.
+     */
+    private boolean unknown(NetConnection con, int id){
+        if(!con.syncedEntities.contains(id)){
+            con.unconfirmedEntities.put(id, con.snapshotsSent);
+            return true;
         }
 
+        int round = con.unconfirmedEntities.get(id, -1);
+        if(round == -1) return false;
+
+        if(con.confirmedSnapshotRound >= round){
+            con.unconfirmedEntities.remove(id, -1);
+            return false;
+        }
+        return true;
     }
 
     String fixName(String name){
@@ -951,7 +1380,12 @@ public class NetServer implements ApplicationListener{
     }
 
     void sync(){
+        serializeNanos = compressNanos = 0;
+
         try{
+            //every player is synced in the same frame, so shared snapshot chunks are built once per sync
+            boolean syncEntities = timer.get(timerEntitySync, serverSyncTime);
+
             Groups.player.each(p -> !p.isLocal(), player -> {
                 if(player.con == null || !player.con.isConnected()){
                     onDisconnect(player, "disappeared");
@@ -960,7 +1394,7 @@ public class NetServer implements ApplicationListener{
 
                 NetConnection connection = player.con;
 
-                if(!player.timer(0, serverSyncTime) || !connection.hasConnected) return;
+                if(!syncEntities || !connection.hasConnected) return;
 
                 try{
                     writeEntitySnapshot(player);
@@ -973,11 +1407,24 @@ public class NetServer implements ApplicationListener{
                 writeBlockSnapshots();
             }
 
+            if(serializeNanos + compressNanos > 0){
+                lastSerializeNanos = serializeNanos;
+                lastCompressNanos = compressNanos;
+            }
+
         }catch(IOException e){
             Log.err(e);
         }
     }
 
+    /** A block of serialized entity records, compressed once and sent to every player it is relevant to. */
+    static class SyncChunk{
+        /** IDs of the entities in this chunk. */
+        final IntSeq ids = new IntSeq();
+        int amount, length;
+        byte[] data;
+    }
+
     public interface TeamAssigner{
         Team assign(Player player, Iterable<Player> players);
     }
@@ -30,6 +30,8 @@ import static mindustry.Vars.*;
 
 public class World{
     public final Context context = new Context();
+    /** Stages run on every map load, before the load event; systems register their preparation work here. */
+    public final LoadPipeline loadPipeline = new LoadPipeline();
 
     public Tiles tiles = new Tiles(0, 0);
 
@@ -37,7 +39,7 @@ public class World{
     private ObjectMap<Map, Runnable> customMapLoaders = new ObjectMap<>();
 
     public World(){
-
+        loadPipeline.add("darkness", () -> addDarkness(tiles));
     }
 
     /** Adds a custom handler function for loading a custom map - usually a generated one. */
@@ -199,6 +201,9 @@ public class World{
      */
     public void endMapLoad(){
 
+        loadPipeline.begin();
+        long time = Time.nanos();
+
         for(Tile tile : tiles){
             //remove legacy blocks; they need to stop existing
             if(tile.block() instanceof LegacyBlock l){
@@ -211,12 +216,18 @@ public class World{
             }
         }
 
-        addDarkness(tiles);
+        loadPipeline.record("proximity", Time.timeSinceNanos(time));
+
+        //darkness, indexing, pathfinding data and the minimap only read the tiles, so they are prepared in parallel
+        loadPipeline.run();
 
         Groups.resize(-finalWorldBounds, -finalWorldBounds, tiles.width * tilesize + finalWorldBounds * 2, tiles.height * tilesize + finalWorldBounds * 2);
 
         generating = false;
+
+        time = Time.nanos();
         Events.fire(new WorldLoadEvent());
+        loadPipeline.record("load event", Time.timeSinceNanos(time));
     }
 
     public Rect getQuadBounds(Rect in){
@@ -461,25 +472,25 @@ public class World{
     }
 
     public void addDarkness(Tiles tiles){
-        byte[] dark = new byte[tiles.width * tiles.height];
-        byte[] writeBuffer = new byte[tiles.width * tiles.height];
+        int width = tiles.width, height = tiles.height;
+        byte[] dark = new byte[width * height];
+        byte[] writeBuffer = new byte[width * height];
 
         byte darkIterations = 4;
 
         for(int i = 0; i < dark.length; i++){
-            Tile tile = tiles.geti(i);
-            if(tile.isDarkened()){
+            if(tiles.geti(i).isDarkened()){
                 dark[i] = darkIterations;
             }
         }
 
         for(int i = 0; i < darkIterations; i++){
-            for(Tile tile : tiles){
-                int idx = tile.y * tiles.width + tile.x;
+            for(int idx = 0; idx < dark.length; idx++){
+                int x = idx % width, y = idx / width;
                 boolean min = false;
                 for(Point2 point : Geometry.d4){
-                    int newX = tile.x + point.x, newY = tile.y + point.y;
-                    int nidx = newY * tiles.width + newX;
+                    int newX = x + point.x, newY = y + point.y;
+                    int nidx = newY * width + newX;
                     if(tiles.in(newX, newY) && dark[nidx] < dark[idx]){
                         min = true;
                         break;
@@ -491,19 +502,21 @@ public class World{
             System.arraycopy(writeBuffer, 0, dark, 0, writeBuffer.length);
         }
 
-        for(Tile tile : tiles){
-            int idx = tile.y * tiles.width + tile.x;
+        for(int idx = 0; idx < dark.length; idx++){
+            int x = idx % width, y = idx / width;
+            Tile tile = tiles.geti(idx);
+            boolean darkened = tile.isDarkened();
 
-            if(tile.isDarkened()){
+            if(darkened){
                 tile.data = dark[idx];
             }
 
             if(dark[idx] == 4){
                 boolean full = true;
                 for(Point2 p : Geometry.d4){
-                    int px = p.x + tile.x, py = p.y + tile.y;
-                    int nidx = py * tiles.width + px;
-                    if(tiles.in(px, py) && !(tile.isDarkened() && dark[nidx] == 4)){
+                    int px = p.x + x, py = p.y + y;
+                    int nidx = py * width + px;
+                    if(tiles.in(px, py) && !(darkened && dark[nidx] == 4)){
                         full = false;
                         break;
                     }
@@ -1,12 +1,17 @@
 package mindustry.entities;
 
+import arc.func.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
+import arc.util.*;
 import mindustry.content.*;
 import mindustry.gen.*;
 import mindustry.world.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class EntityCollisions{
@@ -14,6 +19,10 @@ public class EntityCollisions{
     private static final int r = 1;
     //move in 1-unit chunks
     private static final float seg = 1f;
+    //minimum amount of entities in a group to detect their collisions in parallel
+    private static final int minParallel = 256;
+    //amount of entities whose collisions are detected by each task
+    private static final int chunkSize = 64;
 
     //tile collisions
     private Rect tmp = new Rect();
@@ -21,10 +30,20 @@ public class EntityCollisions{
     private Vec2 l1 = new Vec2();
     private Rect r1 = new Rect();
     private Rect r2 = new Rect();
+    private Rect r3 = new Rect();
+    private Rect r4 = new Rect();
 
     //entity collisions
     private Seq<Hitboxc> arrOut = new Seq<>();
 
+    //parallel entity collisions
+    private final int threads = Math.min(OS.cores, 8);
+    private @Nullable ForkJoinPool pool;
+    private final Seq<CollisionChunk> chunks = new Seq<>();
+    private final Seq<ForkJoinTask<?>> tasks = new Seq<>();
+    private Hitboxc[] solids = {};
+    private int solidCount;
+
     public void moveCheck(Hitboxc entity, float deltax, float deltay, SolidPred solidCheck){
         if(!solidCheck.solid(entity.tileX(), entity.tileY())){
             move(entity, deltax, deltay, solidCheck);
@@ -116,12 +135,12 @@ public class EntityCollisions{
 
     @SuppressWarnings("unchecked")
     public <T extends Hitboxc> void updatePhysics(EntityGroup<T> group){
-        QuadTree tree = group.tree();
-        tree.clear();
+        SpatialGrid index = group.grid();
+        index.flush();
 
         group.each(s -> {
             s.updateLastPosition();
-            tree.insert(s);
+            index.update(s);
         });
     }
 
@@ -141,8 +160,16 @@ public class EntityCollisions{
     }
 
     private void checkCollide(Hitboxc a, Hitboxc b){
-        a.hitbox(this.r1);
-        b.hitbox(this.r2);
+        if(a != b && a.collides(b) && intersects(a, b, r3, r4, l1)){
+            a.collision(b, l1.x, l1.y);
+            b.collision(a, l1.x, l1.y);
+        }
+    }
+
+    /** Sweeps the hitboxes of two entities from their last positions. Only reads entity state. */
+    private boolean intersects(Hitboxc a, Hitboxc b, Rect r1, Rect r2, Vec2 out){
+        a.hitbox(r1);
+        b.hitbox(r2);
 
         r1.x += (a.lastX() - a.getX());
         r1.y += (a.lastY() - a.getY());
@@ -154,15 +181,9 @@ public class EntityCollisions{
         float vbx = b.getX() - b.lastX();
         float vby = b.getY() - b.lastY();
 
-        if(a != b && a.collides(b)){
-            l1.set(a.getX(), a.getY());
-            boolean collide = r1.overlaps(r2) || collide(r1.x, r1.y, r1.width, r1.height, vax, vay,
-            r2.x, r2.y, r2.width, r2.height, vbx, vby, l1);
-            if(collide){
-                a.collision(b, l1.x, l1.y);
-                b.collision(a, l1.x, l1.y);
-            }
-        }
+        out.set(a.getX(), a.getY());
+        return r1.overlaps(r2) || collide(r1.x, r1.y, r1.width, r1.height, vax, vay,
+            r2.x, r2.y, r2.width, r2.height, vbx, vby, out);
     }
 
     private boolean collide(float x1, float y1, float w1, float h1, float vx1, float vy1,
@@ -211,33 +232,157 @@ public class EntityCollisions{
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Collides every entity in a group with the entities it wants to collide with.
+     * Large groups are split up: candidate pairs are found in parallel without modifying anything,
+     * and then collisions are applied on the main thread, in the same order as a serial pass would.
+     */
     public <T extends Hitboxc> void collide(EntityGroup<T> groupa){
-        groupa.each(solid -> {
-            solid.hitbox(r1);
-            r1.x += (solid.lastX() - solid.getX());
-            r1.y += (solid.lastY() - solid.getY());
+        if(groupa.size() < minParallel || threads <= 1){
+            groupa.each(this::collideEntity);
+            return;
+        }
 
-            solid.hitbox(r2);
-            r2.merge(r1);
+        //snapshot the group, as collisions may add or remove entities
+        solidCount = groupa.size();
+        if(solids.length < solidCount){
+            solids = new Hitboxc[solidCount * 2];
+        }
+        for(int i = 0; i < solidCount; i++){
+            Hitboxc solid = groupa.index(i);
+            solids[i] = solid;
+            solid.collisionSlot(i);
+        }
 
-            arrOut.clear();
+        int amount = (solidCount + chunkSize - 1) / chunkSize;
+        while(chunks.size < amount){
+            chunks.add(new CollisionChunk());
+        }
 
-            //get all targets based on what entity wants to collide with
-            solid.getCollisions(tree -> tree.intersect(r2, arrOut));
+        if(pool == null){
+            pool = new ForkJoinPool(threads);
+        }
 
-            for(Hitboxc sc : arrOut){
-                sc.hitbox(r1);
-                if(r2.overlaps(r1)){
-                    checkCollide(solid, sc);
-                    //break out of loop when this object hits something
-                    if(!solid.isAdded()) return;
-                }
+        for(int i = 0; i < amount; i++){
+            CollisionChunk chunk = chunks.get(i);
+            chunk.from = i * chunkSize;
+            chunk.to = Math.min(chunk.from + chunkSize, solidCount);
+            tasks.add(pool.submit(chunk));
+        }
+
+        for(ForkJoinTask<?> task : tasks){
+            task.join();
+        }
+        tasks.clear();
+
+        groupa.each(solid -> {
+            int slot = solid.collisionSlot();
+            if(slot >= 0 && slot < solidCount && solids[slot] == solid){
+                solid.collisionSlot(-1);
+                chunks.get(slot / chunkSize).resolve(solid, slot);
+            }else{
+                //added by a collision during this pass
+                collideEntity(solid);
             }
         });
+
+        Arrays.fill(solids, 0, solidCount, null);
+        solidCount = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collideEntity(Hitboxc solid){
+        solid.hitbox(r1);
+        r1.x += (solid.lastX() - solid.getX());
+        r1.y += (solid.lastY() - solid.getY());
+
+        solid.hitbox(r2);
+        r2.merge(r1);
+
+        arrOut.clear();
+
+        //get all targets based on what entity wants to collide with
+        solid.getCollisions(index -> index.intersect(r2, arrOut));
+
+        for(Hitboxc sc : arrOut){
+            sc.hitbox(r1);
+            if(r2.overlaps(r1)){
+                checkCollide(solid, sc);
+                //break out of loop when this object hits something
+                if(!solid.isAdded()) return;
+            }
+        }
     }
 
     public interface SolidPred{
         boolean solid(int x, int y);
     }
+
+    /** Collision candidates of a range of snapshotted entities. */
+    @SuppressWarnings("unchecked")
+    private class CollisionChunk implements Runnable{
+        int from, to;
+
+        /** end of the targets of each entity in the chunk */
+        final int[] ends = new int[chunkSize];
+        final Seq<Hitboxc> targets = new Seq<>(Hitboxc.class);
+        /** collision point of each target */
+        final FloatSeq points = new FloatSeq();
+
+        final Seq<Hitboxc> candidates = new Seq<>(Hitboxc.class);
+        final Rect r1 = new Rect(), r2 = new Rect(), r3 = new Rect(), r4 = new Rect(), hitbox = new Rect();
+        final Vec2 point = new Vec2();
+        final Cons<SpatialGrid> query = index -> index.intersect(r2, hitbox, candidates);
+
+        /** Finds candidates in parallel. Does not modify any entity. */
+        @Override
+        public void run(){
+            targets.clear();
+            points.clear();
+
+            for(int i = from; i < to; i++){
+                Hitboxc solid = solids[i];
+
+                solid.hitbox(r1);
+                r1.x += (solid.lastX() - solid.getX());
+                r1.y += (solid.lastY() - solid.getY());
+
+                solid.hitbox(r2);
+                r2.merge(r1);
+
+                candidates.clear();
+                solid.getCollisions(query);
+
+                for(int j = 0; j < candidates.size; j++){
+                    Hitboxc other = candidates.items[j];
+                    other.hitbox(r1);
+
+                    //collides() can only become false as collisions happen (e.g. piercing), so it is checked again later
+                    if(r2.overlaps(r1) && solid != other && solid.collides(other) && intersects(solid, other, r3, r4, point)){
+                        targets.add(other);
+                        points.add(point.x, point.y);
+                    }
+                }
+
+                ends[i - from] = targets.size;
+            }
+        }
+
+        /** Applies the collisions of an entity. Main thread only. */
+        void resolve(Hitboxc solid, int slot){
+            int local = slot - from;
+
+            for(int i = local == 0 ? 0 : ends[local - 1]; i < ends[local]; i++){
+                Hitboxc other = targets.items[i];
+                if(!solid.collides(other)) continue;
+
+                float x = points.items[i * 2], y = points.items[i * 2 + 1];
+                solid.collision(other, x, y);
+                other.collision(solid, x, y);
+
+                //break out of loop when this object hits something
+                if(!solid.isAdded()) return;
+            }
+        }
+    }
 }
@@ -21,10 +21,12 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     private final Rect viewport = new Rect();
     private final Rect intersectRect = new Rect();
     private IntMap<T> map;
-    private QuadTree tree;
+    private SpatialGrid grid;
+    private @Nullable EntityIndexer indexer;
     private boolean clearing;
 
-    private int index;
+    //index of the entity being iterated over in each(), or -1
+    private int index = -1;
 
     public static int nextId(){
         return lastId++;
@@ -34,7 +36,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         array = new Seq<>(false, 32, type);
 
         if(spatial){
-            tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+            grid = new SpatialGrid<>();
         }
 
         if(mapping){
@@ -42,8 +44,19 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         }
     }
 
+    /** Sets the callback used to store the index of each entity in this group. */
+    public void setIndexer(EntityIndexer indexer){
+        this.indexer = indexer;
+    }
+
     public void sort(Comparator<? super T> comp){
         array.sort(comp);
+
+        if(indexer != null){
+            for(int i = 0; i < array.size; i++){
+                indexer.change(array.items[i], i);
+            }
+        }
     }
 
     public void collide(){
@@ -67,12 +80,14 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         for(index = 0; index < array.size; index++){
             cons.get(array.items[index]);
         }
+        index = -1;
     }
 
     public void each(Boolf<T> filter, Cons<T> cons){
         for(index = 0; index < array.size; index++){
             if(filter.get(array.items[index])) cons.get(array.items[index]);
         }
+        index = -1;
     }
 
     public void draw(Cons<T> cons){
@@ -111,26 +126,33 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     public void intersect(float x, float y, float width, float height, Cons<? super T> out){
         //don't waste time for empty groups
         if(isEmpty()) return;
-        tree.intersect(x, y, width, height, out);
+        grid.intersect(x, y, width, height, out);
     }
 
     public Seq<T> intersect(float x, float y, float width, float height){
         intersectArray.clear();
         //don't waste time for empty groups
         if(isEmpty()) return intersectArray;
-        tree.intersect(intersectRect.set(x, y, width, height), intersectArray);
+        grid.intersect(intersectRect.set(x, y, width, height), intersectArray);
         return intersectArray;
     }
 
-    public QuadTree tree(){
-        if(tree == null) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
-        return tree;
+    /** @return the spatial index of this group. Positions are updated once per frame in {@link #updatePhysics()}. */
+    public SpatialGrid grid(){
+        if(grid == null) throw new RuntimeException("This group does not support spatial queries! Enable them when creating it.");
+        return grid;
     }
 
-    /** Resizes the internal quadtree, if it is enabled.*/
+    /** @deprecated the quadtree was replaced by a spatial grid with the same queries; use {@link #grid()} instead. */
+    @Deprecated
+    public SpatialGrid tree(){
+        return grid();
+    }
+
+    /** Resizes the internal spatial index, if it is enabled.*/
     public void resize(float x, float y, float w, float h){
-        if(tree != null){
-            tree = new QuadTree<>(new Rect(x, y, w, h));
+        if(grid != null){
+            grid.resize(x, y, w, h);
         }
     }
 
@@ -156,6 +178,9 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
 
     public void add(T type){
         if(type == null) throw new RuntimeException("Cannot add a null entity!");
+        if(indexer != null){
+            indexer.change(type, array.size);
+        }
         array.add(type);
 
         if(mappingEnabled()){
@@ -164,19 +189,50 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     }
 
     public void remove(T type){
+        removeIndex(type, -1);
+    }
+
+    /**
+     * Removes an entity in constant time, given its index in this group. The last entity is moved into its place.
+     * If the index is not valid, the entity is searched for instead.
+     * Entities that have not been visited by a running {@link #each(Cons)} are still visited after this.
+     */
+    public void removeIndex(T type, int position){
         if(clearing) return;
         if(type == null) throw new RuntimeException("Cannot remove a null entity!");
-        int idx = array.indexOf(type, true);
-        if(idx != -1){
-            array.remove(idx);
-            if(map != null){
-                map.remove(type.id());
-            }
 
-            //fix iteration index when removing
-            if(index >= idx){
-                index --;
+        T[] items = array.items;
+        if(position < 0 || position >= array.size || items[position] != type){
+            position = array.indexOf(type, true);
+            if(position == -1) return;
+        }
+
+        //entities before the iteration index have been visited; make sure the last entity ends up after it
+        if(index >= position && index < array.size){
+            if(index > position){
+                T current = items[index];
+                items[position] = current;
+                if(indexer != null) indexer.change(current, position);
+                position = index;
             }
+
+            index--;
+        }
+
+        int last = array.size - 1;
+        if(position != last){
+            T head = items[last];
+            items[position] = head;
+            if(indexer != null) indexer.change(head, position);
+        }
+        items[last] = null;
+        array.size--;
+
+        if(map != null){
+            map.remove(type.id());
+        }
+        if(grid != null){
+            grid.remove((SpatialGrid.Entry)type);
         }
     }
 
@@ -186,6 +242,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         array.each(Entityc::remove);
         array.clear();
         if(map != null) map.clear();
+        if(grid != null) grid.clear();
 
         clearing = false;
     }
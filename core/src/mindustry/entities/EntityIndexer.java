@@ -0,0 +1,6 @@
+package mindustry.entities;
+
+/** Stores the index of an entity in a group. Implemented in generated code, one for each group. */
+public interface EntityIndexer{
+    void change(Object entity, int index);
+}
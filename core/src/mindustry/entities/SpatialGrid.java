@@ -0,0 +1,221 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * A uniform grid of entries that is updated in place as they move, instead of being rebuilt every frame.
+ * Entries are bucketed by the center of their hitbox; queries are expanded by the largest hitbox seen and then tested against each hitbox.
+ * Like the quadtrees it replaces, the grid reflects positions at the last {@link #update(Entry)} of each entry,
+ * and removals only take effect on the next {@link #flush()}, so it is safe to remove entries while iterating over a query.
+ * Not thread-safe, except for queries that are given their own temporary rectangle, which may run concurrently while the grid is not modified.
+ */
+@SuppressWarnings("unchecked")
+public class SpatialGrid<T extends SpatialGrid.Entry>{
+    /** Default size of a cell, in world units. */
+    public static final float defaultCellSize = tilesize * 8;
+
+    private final float cellSize;
+    private float x, y;
+    private int width, height;
+    private Entry[][] cells = {};
+    private int[] counts = {};
+    /** size of the largest hitbox inserted since the last clear */
+    private float maxSize;
+
+    private final Seq<Entry> removed = new Seq<>(false, 16, Entry.class);
+    private final IntSeq removedCells = new IntSeq();
+    private final Rect rect = new Rect();
+
+    public SpatialGrid(float cellSize){
+        this.cellSize = cellSize;
+        resize(0, 0, 0, 0);
+    }
+
+    public SpatialGrid(){
+        this(defaultCellSize);
+    }
+
+    public SpatialGrid(Rect bounds){
+        this();
+        resize(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /** Resizes the grid to cover the specified area. All entries are dropped, and get re-inserted on their next update. */
+    public void resize(float x, float y, float w, float h){
+        clear();
+
+        this.x = x;
+        this.y = y;
+        width = Math.max((int)(w / cellSize) + 1, 1);
+        height = Math.max((int)(h / cellSize) + 1, 1);
+        cells = new Entry[width * height][];
+        counts = new int[width * height];
+    }
+
+    /** Removes all entries immediately. */
+    public void clear(){
+        for(int i = 0; i < cells.length; i++){
+            Entry[] cell = cells[i];
+            for(int j = 0; j < counts[i]; j++){
+                cell[j].gridCell(-1);
+                cell[j] = null;
+            }
+            counts[i] = 0;
+        }
+
+        removed.clear();
+        removedCells.clear();
+        maxSize = 0f;
+    }
+
+    /** Inserts an entry, or moves it to the cell of its current position. */
+    public void update(T entry){
+        entry.hitbox(rect);
+        maxSize = Math.max(maxSize, Math.max(rect.width, rect.height));
+
+        int cell = cell(rect.x + rect.width / 2f, rect.y + rect.height / 2f), current = entry.gridCell();
+        if(cell == current) return;
+
+        if(current != -1){
+            removeFrom(current, entry);
+        }
+
+        add(cell, entry);
+        entry.gridCell(cell);
+    }
+
+    /** Queues an entry for removal on the next {@link #flush()}. */
+    public void remove(T entry){
+        if(entry.gridCell() != -1){
+            removed.add(entry);
+            removedCells.add(entry.gridCell());
+        }
+    }
+
+    /** Applies all queued removals. */
+    public void flush(){
+        for(int i = 0; i < removed.size; i++){
+            Entry entry = removed.items[i];
+            int cell = removedCells.items[i];
+
+            removeFrom(cell, entry);
+
+            //pooled entries may have been reset or re-added since
+            if(entry.gridCell() == cell){
+                entry.gridCell(-1);
+            }
+        }
+
+        removed.clear();
+        removedCells.clear();
+    }
+
+    /** Calls the consumer for every entry whose hitbox overlaps the rectangle. */
+    public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+        intersect(x, y, width, height, rect, out);
+    }
+
+    /** Calls the consumer for every entry whose hitbox overlaps the rectangle, using a caller-owned rectangle for hitboxes. */
+    public void intersect(float x, float y, float width, float height, Rect rect, Cons<? super T> out){
+        float pad = maxSize / 2f;
+        int minx = cellX(x - pad), miny = cellY(y - pad), maxx = cellX(x + width + pad), maxy = cellY(y + height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                int index = cx + cy * this.width;
+                Entry[] cell = cells[index];
+
+                for(int i = 0; i < counts[index]; i++){
+                    Entry entry = cell[i];
+                    entry.hitbox(rect);
+                    if(rect.overlaps(x, y, width, height)){
+                        out.get((T)entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Adds every entry whose hitbox overlaps the rectangle to the output. */
+    public void intersect(Rect area, Seq<? super T> out){
+        intersect(area, rect, out);
+    }
+
+    /** Adds every entry whose hitbox overlaps the rectangle to the output, using a caller-owned rectangle for hitboxes. */
+    public void intersect(Rect area, Rect rect, Seq<? super T> out){
+        float pad = maxSize / 2f;
+        int minx = cellX(area.x - pad), miny = cellY(area.y - pad), maxx = cellX(area.x + area.width + pad), maxy = cellY(area.y + area.height + pad);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            for(int cx = minx; cx <= maxx; cx++){
+                int index = cx + cy * width;
+                Entry[] cell = cells[index];
+
+                for(int i = 0; i < counts[index]; i++){
+                    Entry entry = cell[i];
+                    entry.hitbox(rect);
+                    if(rect.overlaps(area)){
+                        out.add((T)entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(int cell, Entry entry){
+        Entry[] items = cells[cell];
+        int count = counts[cell];
+
+        if(items == null){
+            items = cells[cell] = new Entry[8];
+        }else if(count == items.length){
+            items = cells[cell] = Arrays.copyOf(items, count * 2);
+        }
+
+        items[count] = entry;
+        counts[cell] = count + 1;
+    }
+
+    private void removeFrom(int cell, Entry entry){
+        if(cell >= cells.length) return;
+
+        Entry[] items = cells[cell];
+        int count = counts[cell];
+
+        for(int i = 0; i < count; i++){
+            if(items[i] == entry){
+                items[i] = items[count - 1];
+                items[count - 1] = null;
+                counts[cell] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private int cellX(float wx){
+        return Math.max(Math.min((int)((wx - x) / cellSize), width - 1), 0);
+    }
+
+    private int cellY(float wy){
+        return Math.max(Math.min((int)((wy - y) / cellSize), height - 1), 0);
+    }
+
+    private int cell(float wx, float wy){
+        return cellX(wx) + cellY(wy) * width;
+    }
+
+    /** An object that can be stored in a grid. Each entry may only be in one grid at a time. */
+    public interface Entry extends QuadTreeObject{
+        /** @return the cell this entry is stored in, or -1. */
+        int gridCell();
+
+        void gridCell(int cell);
+    }
+}
@@ -8,11 +8,12 @@ import mindustry.annotations.Annotations.*;
 import mindustry.content.*;
 import mindustry.entities.comp.*;
 import mindustry.game.*;
-import mindustry.game.Teams.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import mindustry.world.*;
 
+import java.util.*;
+
 import static mindustry.Vars.*;
 
 /** Utility class for unit and team interactions.*/
@@ -21,6 +22,9 @@ public class Units{
     private static Unit result;
     private static float cdist;
     private static boolean boolResult;
+    /** contexts used by the static helpers; one per nesting level. Main thread only. */
+    private static final Seq<UnitQuery> queries = new Seq<>();
+    private static int queryDepth;
 
     @Remote(called = Loc.server)
     public static void unitCapDeath(Unit unit){
@@ -192,42 +196,22 @@ public class Units{
 
     /** Returns the closest enemy of this team. Filter by predicate. */
     public static Unit closestEnemy(Team team, float x, float y, float range, Boolf<Unit> predicate){
-        if(team == Team.derelict) return null;
-
-        result = null;
-        cdist = 0f;
-
-        nearbyEnemies(team, x - range, y - range, range*2f, range*2f, e -> {
-            if(e.dead() || !predicate.get(e) || e.team == Team.derelict) return;
-
-            float dst2 = e.dst2(x, y);
-            if(dst2 < range*range && (result == null || dst2 < cdist)){
-                result = e;
-                cdist = dst2;
-            }
-        });
-
-        return result;
+        UnitQuery query = obtainQuery();
+        try{
+            return query.closestEnemy(team, x, y, range, predicate);
+        }finally{
+            queryDepth--;
+        }
     }
 
     /** Returns the closest enemy of this team using a custom comparison function. Filter by predicate. */
     public static Unit bestEnemy(Team team, float x, float y, float range, Boolf<Unit> predicate, Sortf sort){
-        if(team == Team.derelict) return null;
-
-        result = null;
-        cdist = 0f;
-
-        nearbyEnemies(team, x - range, y - range, range*2f, range*2f, e -> {
-            if(e.dead() || !predicate.get(e) || !e.within(x, y, range + e.hitSize/2f)) return;
-
-            float cost = sort.cost(e, x, y);
-            if(result == null || cost < cdist){
-                result = e;
-                cdist = cost;
-            }
-        });
-
-        return result;
+        UnitQuery query = obtainQuery();
+        try{
+            return query.bestEnemy(team, x, y, range, predicate, sort);
+        }finally{
+            queryDepth--;
+        }
     }
 
     /** Returns the closest ally of this team. Filter by predicate. No range. */
@@ -250,20 +234,12 @@ public class Units{
 
     /** Returns the closest ally of this team. Filter by predicate. */
     public static Unit closest(Team team, float x, float y, float range, Boolf<Unit> predicate){
-        result = null;
-        cdist = 0f;
-
-        nearby(team, x, y, range, e -> {
-            if(!predicate.get(e)) return;
-
-            float dist = e.dst2(x, y);
-            if(result == null || dist < cdist){
-                result = e;
-                cdist = dist;
-            }
-        });
-
-        return result;
+        UnitQuery query = obtainQuery();
+        try{
+            return query.closest(team, x, y, range, predicate);
+        }finally{
+            queryDepth--;
+        }
     }
 
     /** Returns the closest ally of this team. Filter by predicate.
@@ -285,9 +261,13 @@ public class Units{
         return result;
     }
 
-    /** Iterates over all units in a rectangle. */
+    /** Iterates over all units of a team in a rectangle. */
     public static void nearby(Team team, float x, float y, float width, float height, Cons<Unit> cons){
-        team.data().tree().intersect(x, y, width, height, cons);
+        Groups.unit.intersect(x, y, width, height, unit -> {
+            if(unit.team == team){
+                cons.get(unit);
+            }
+        });
     }
 
     /** Iterates over all units in a circle around this position. */
@@ -311,12 +291,11 @@ public class Units{
 
     /** Iterates over all units that are enemies of this team. */
     public static void nearbyEnemies(Team team, float x, float y, float width, float height, Cons<Unit> cons){
-        Seq<TeamData> data = state.teams.present;
-        for(int i = 0; i < data.size; i++){
-            if(data.items[i].team != team){
-                nearby(data.items[i].team, x, y, width, height, cons);
+        Groups.unit.intersect(x, y, width, height, unit -> {
+            if(unit.team != team){
+                cons.get(unit);
             }
-        }
+        });
     }
 
     /** Iterates over all units that are enemies of this team. */
@@ -324,7 +303,173 @@ public class Units{
         nearbyEnemies(team, rect.x, rect.y, rect.width, rect.height, cons);
     }
 
+    private static UnitQuery obtainQuery(){
+        if(queryDepth == queries.size){
+            queries.add(new UnitQuery());
+        }
+        return queries.get(queryDepth++);
+    }
+
     public interface Sortf{
         float cost(Unit unit, float x, float y);
     }
+
+    /**
+     * Caller-owned state for unit queries.
+     * Unlike the static helpers, queries through a context share no mutable state and do not allocate once warmed up,
+     * so separate contexts can be used from multiple threads at once, as long as units are not being added, removed or moved.
+     * Predicates and sort functions passed to a context must be safe to call from the querying thread.
+     */
+    public static class UnitQuery{
+        /** Result of the last single unit query. */
+        public @Nullable Unit result;
+        /** Cost of {@link #result}: its squared distance, or the value of the sort function if one was used. */
+        public float cost;
+        /** Results of the last multiple unit query, sorted by ascending cost. */
+        public final Seq<Unit> units = new Seq<>(false, 16, Unit.class);
+        /** Cost of each unit in {@link #units}. */
+        public float[] costs = new float[16];
+
+        private final Seq<Unit> candidates = new Seq<>(false, 16, Unit.class);
+        private final Rect area = new Rect(), hitbox = new Rect();
+
+        /** @return the closest enemy unit whose center is within range, or null. */
+        public @Nullable Unit closestEnemy(Team team, float x, float y, float range, Boolf<Unit> predicate){
+            result = null;
+            cost = 0f;
+            if(team == Team.derelict) return null;
+
+            gather(x, y, range);
+            for(int i = 0; i < candidates.size; i++){
+                Unit e = candidates.items[i];
+                if(e.team == team || e.team == Team.derelict || e.dead() || !predicate.get(e)) continue;
+
+                float dst2 = e.dst2(x, y);
+                if(dst2 < range*range && (result == null || dst2 < cost)){
+                    result = e;
+                    cost = dst2;
+                }
+            }
+
+            return result;
+        }
+
+        /** @return the enemy unit with the lowest cost whose hitbox is within range, or null. */
+        public @Nullable Unit bestEnemy(Team team, float x, float y, float range, Boolf<Unit> predicate, Sortf sort){
+            result = null;
+            cost = 0f;
+            if(team == Team.derelict) return null;
+
+            gather(x, y, range);
+            for(int i = 0; i < candidates.size; i++){
+                Unit e = candidates.items[i];
+                if(e.team == team || e.dead() || !predicate.get(e) || !e.within(x, y, range + e.hitSize/2f)) continue;
+
+                float c = sort.cost(e, x, y);
+                if(result == null || c < cost){
+                    result = e;
+                    cost = c;
+                }
+            }
+
+            return result;
+        }
+
+        /** @return the closest unit of this team whose hitbox is within range, or null. */
+        public @Nullable Unit closest(Team team, float x, float y, float range, Boolf<Unit> predicate){
+            result = null;
+            cost = 0f;
+
+            gather(x, y, range);
+            for(int i = 0; i < candidates.size; i++){
+                Unit e = candidates.items[i];
+                if(e.team != team || !e.within(x, y, range + e.hitSize/2f) || !predicate.get(e)) continue;
+
+                float dst2 = e.dst2(x, y);
+                if(result == null || dst2 < cost){
+                    result = e;
+                    cost = dst2;
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Finds the closest enemies whose hitboxes are within range.
+         * @return the amount of units found, at most {@code limit}. The units are stored in {@link #units}, closest first.
+         */
+        public int nearestEnemies(Team team, float x, float y, float range, int limit, Boolf<Unit> predicate){
+            return enemies(team, x, y, range, limit, predicate, Unit::dst2);
+        }
+
+        /**
+         * Finds the enemies with the lowest cost whose hitboxes are within range.
+         * @param limit the maximum amount of units to find; use {@link Integer#MAX_VALUE} to find all enemies in range.
+         * @return the amount of units found. The units are stored in {@link #units}, sorted by ascending cost.
+         */
+        public int enemies(Team team, float x, float y, float range, int limit, Boolf<Unit> predicate, Sortf sort){
+            units.clear();
+            if(team == Team.derelict || limit <= 0) return 0;
+
+            gather(x, y, range);
+            for(int i = 0; i < candidates.size; i++){
+                Unit e = candidates.items[i];
+                if(e.team == team || e.dead() || !predicate.get(e) || !e.within(x, y, range + e.hitSize/2f)) continue;
+
+                insert(e, sort.cost(e, x, y), limit);
+            }
+
+            return units.size;
+        }
+
+        /**
+         * Finds the units of a team whose hitboxes are within range.
+         * @return the amount of units found, at most {@code limit}. The units are stored in {@link #units}, closest first.
+         */
+        public int allies(Team team, float x, float y, float range, int limit, Boolf<Unit> predicate){
+            units.clear();
+            if(limit <= 0) return 0;
+
+            gather(x, y, range);
+            for(int i = 0; i < candidates.size; i++){
+                Unit e = candidates.items[i];
+                if(e.team != team || !e.within(x, y, range + e.hitSize/2f) || !predicate.get(e)) continue;
+
+                insert(e, e.dst2(x, y), limit);
+            }
+
+            return units.size;
+        }
+
+        /** Inserts a unit into the sorted results, dropping the unit with the highest cost if there are too many. */
+        private void insert(Unit unit, float c, int limit){
+            int size = units.size;
+            if(size == limit && c >= costs[size - 1]) return;
+
+            if(size < limit){
+                units.add(unit);
+                if(costs.length < units.size){
+                    costs = Arrays.copyOf(costs, costs.length * 2);
+                }
+                size++;
+            }
+
+            Unit[] items = units.items;
+            int i = size - 1;
+            while(i > 0 && costs[i - 1] > c){
+                items[i] = items[i - 1];
+                costs[i] = costs[i - 1];
+                i--;
+            }
+            items[i] = unit;
+            costs[i] = c;
+        }
+
+        private void gather(float x, float y, float range){
+            candidates.clear();
+            if(Groups.unit.isEmpty()) return;
+            Groups.unit.grid().intersect(area.set(x - range, y - range, range*2f, range*2f), hitbox, candidates);
+        }
+    }
 }
@@ -76,6 +76,11 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     private transient boolean sleeping;
     private transient float sleepTime;
     private transient boolean initialized;
+    /** If true, this building has changed in a way that requires it to be included in the next block snapshot. */
+    transient boolean syncDirty = true;
+    private transient float syncedPowerStatus;
+    /** Team data this building is counted in, see {@link TeamData#buildingCount}. */
+    private transient @Nullable TeamData countedData;
 
     /** Sets this tile entity data to this and adds it if necessary. */
     public Building init(Tile tile, Team team, boolean shouldAdd, int rotation){
@@ -128,6 +133,23 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
         return self();
     }
 
+    @Replace
+    public void team(Team team){
+        if(this.team == team) return;
+        this.team = team;
+
+        if(countedData != null){
+            countedData.buildingCount--;
+            countedData = team.data();
+            countedData.buildingCount++;
+        }
+
+        //buildings being read while the world loads are indexed afterwards
+        if(tile != null && tile.build == self() && !world.isGenerating()){
+            indexer.updateIndices(tile);
+        }
+    }
+
     @Override
     @Replace
     public int tileX(){
@@ -158,7 +180,7 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     public final void readBase(Reads read){
         health = read.f();
         byte rot = read.b();
-        team = Team.get(read.b());
+        team(Team.get(read.b()));
 
         rotation = rot & 0b01111111;
         boolean legacy = true;
@@ -190,6 +212,19 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
         read(read, revision);
     }
 
+    /** @return whether this building has changed since it was last written to a block snapshot. */
+    public boolean needsSync(){
+        return syncDirty || (items != null && items.dirty) || (liquids != null && liquids.dirty) || (power != null && power.status != syncedPowerStatus);
+    }
+
+    /** Called after this building is written to a block snapshot. */
+    public void synced(){
+        syncDirty = false;
+        if(items != null) items.dirty = false;
+        if(liquids != null) liquids.dirty = false;
+        if(power != null) syncedPowerStatus = power.status;
+    }
+
     @CallSuper
     public void write(Writes write){
         //overriden by subclasses!
@@ -939,6 +974,8 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
 
     /** Called when arbitrary configuration is applied to a tile. */
     public void configured(@Nullable Unit builder, @Nullable Object value){
+        syncDirty = true;
+
         //null is of type void.class; anonymous classes use their superclass.
         Class<?> type = value == null ? void.class : value.getClass().isAnonymousClass() || value.getClass().getSimpleName().startsWith("adapter") ? value.getClass().getSuperclass() : value.getClass();
 
@@ -1370,11 +1407,22 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
         }
     }
 
+    @Override
+    public void add(){
+        countedData = team.data();
+        countedData.buildingCount++;
+    }
+
     @Override
     public void remove(){
         if(sound != null){
             sound.stop();
         }
+
+        if(countedData != null){
+            countedData.buildingCount--;
+            countedData = null;
+        }
     }
 
     @Override
@@ -9,10 +9,10 @@ import arc.struct.*;
 import arc.util.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.core.*;
+import mindustry.entities.*;
 import mindustry.entities.bullet.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
-import mindustry.game.Teams.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.world.blocks.defense.Wall.*;
@@ -33,13 +33,9 @@ abstract class BulletComp implements Timedc, Damagec, Hitboxc, Teamc, Posc, Draw
     transient boolean absorbed, hit;
 
     @Override
-    public void getCollisions(Cons<QuadTree> consumer){
-        Seq<TeamData> data = state.teams.present;
-        for(int i = 0; i < data.size; i++){
-            if(data.items[i].team != team){
-                consumer.get(data.items[i].tree());
-            }
-        }
+    public void getCollisions(Cons<SpatialGrid> consumer){
+        //units of the same team are filtered out by collides()
+        consumer.get(Groups.unit.grid());
     }
 
     @Override
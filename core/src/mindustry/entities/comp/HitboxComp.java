@@ -5,13 +5,19 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.math.geom.QuadTree.*;
 import mindustry.annotations.Annotations.*;
+import mindustry.entities.*;
+import mindustry.entities.SpatialGrid.*;
 import mindustry.gen.*;
 
 @Component
-abstract class HitboxComp implements Posc, Sized, QuadTreeObject{
+abstract class HitboxComp implements Posc, Sized, QuadTreeObject, Entry{
     @Import float x, y;
 
     transient float lastX, lastY, deltaX, deltaY, hitSize;
+    /** cell in the spatial index of this entity's group, -1 if not indexed */
+    transient int gridCell = -1;
+    /** index of this entity in the current parallel collision pass, -1 if none */
+    transient int collisionSlot = -1;
 
     @Override
     public void update(){
@@ -21,6 +27,7 @@ abstract class HitboxComp implements Posc, Sized, QuadTreeObject{
     @Override
     public void add(){
         updateLastPosition();
+        collisionSlot = -1;
     }
 
     @Override
@@ -33,7 +40,7 @@ abstract class HitboxComp implements Posc, Sized, QuadTreeObject{
         return hitSize;
     }
 
-    void getCollisions(Cons<QuadTree> consumer){
+    void getCollisions(Cons<SpatialGrid> consumer){
 
     }
 
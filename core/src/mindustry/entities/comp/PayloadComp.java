@@ -45,12 +45,26 @@ abstract class PayloadComp implements Posc, Rotc, Hitboxc, Unitc{
         return payloads.size > 0;
     }
 
+    @Override
+    public void add(){
+        //carried units count towards the unit cap, as long as their carrier is in the world
+        countCarried(1);
+    }
+
+    @Override
+    public void remove(){
+        countCarried(-1);
+    }
+
     void addPayload(Payload load){
         payloads.add(load);
+        if(load instanceof UnitPayload p && isAdded()) countNested(p.unit, 1);
     }
 
     void pickup(Unit unit){
+        //removing the unit also uncounts everything it carries, so count all of it back
         unit.remove();
+        countNested(unit, 1);
         payloads.add(new UnitPayload(unit));
         Fx.unitPickup.at(unit);
         if(Vars.net.client()){
@@ -89,6 +103,7 @@ abstract class PayloadComp implements Posc, Rotc, Hitboxc, Unitc{
 
         //drop off payload on an acceptor if possible
         if(on != null && on.build != null && on.build.acceptPayload(on.build, payload)){
+            if(payload instanceof UnitPayload p) countNested(p.unit, -1);
             Fx.unitDrop.at(on.build);
             on.build.handlePayload(on.build, payload);
             return true;
@@ -120,13 +135,35 @@ abstract class PayloadComp implements Posc, Rotc, Hitboxc, Unitc{
         u.rotation(rotation);
         //reset the ID to a new value to make sure it's synced
         u.id = EntityGroup.nextId();
-        //decrement count to prevent double increment
-        if(!u.isAdded()) u.team.data().updateCount(u.type, -1);
+        //no longer carried; adding the unit counts it and its payload again
+        if(!u.isAdded()) countNested(u, -1);
         u.add();
 
         return true;
     }
 
+    private void countCarried(int amount){
+        for(int i = 0; i < payloads.size; i++){
+            if(payloads.get(i) instanceof UnitPayload p){
+                countNested(p.unit, amount);
+            }
+        }
+    }
+
+    /** Updates the counts of a carried unit and, recursively, of the units it carries. */
+    private void countNested(Unit unit, int amount){
+        unit.team.data().updateCount(unit.type, amount);
+
+        if(unit instanceof Payloadc pay){
+            Seq<Payload> inner = pay.payloads();
+            for(int i = 0; i < inner.size; i++){
+                if(inner.get(i) instanceof UnitPayload p){
+                    countNested(p.unit, amount);
+                }
+            }
+        }
+    }
+
     /** @return whether the tile has been successfully placed. */
     boolean dropBlock(BuildPayload payload){
         Building tile = payload.build;
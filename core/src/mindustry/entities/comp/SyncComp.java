@@ -4,18 +4,23 @@ import arc.util.io.*;
 import mindustry.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.gen.*;
+import mindustry.net.*;
 
 import java.nio.*;
 
 @Component
 abstract class SyncComp implements Entityc{
     transient long lastUpdated, updateSpacing;
+    /** Client-side: round of the last entity snapshot this entity was read from. */
+    transient int syncRound = -1;
 
     //all these method bodies are internally generated
     void snapSync(){}
     void snapInterpolation(){}
     void readSync(Reads read){}
     void writeSync(Writes write){}
+    void readSyncDelta(Reads read){}
+    void writeSyncDelta(Writes write, SyncBaseline baseline){}
     void readSyncManual(FloatBuffer buffer){}
     void writeSyncManual(FloatBuffer buffer){}
     void afterSync(){}
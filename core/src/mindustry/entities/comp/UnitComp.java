@@ -19,6 +19,7 @@ import mindustry.entities.abilities.*;
 import mindustry.entities.units.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
+import mindustry.game.Teams.*;
 import mindustry.gen.*;
 import mindustry.logic.*;
 import mindustry.type.*;
@@ -47,6 +48,10 @@ abstract class UnitComp implements Healthc, Physicsc, Hitboxc, Statusc, Teamc, I
     transient Seq<Ability> abilities = new Seq<>(0);
     private transient float resupplyTime = Mathf.random(10f);
     private transient boolean wasPlayer;
+    /** Team data this unit is listed in, the type it is listed under, and its positions in the lists. See {@link TeamData#addUnit(Unit)}. */
+    transient @Nullable TeamData teamData;
+    transient @Nullable UnitType teamType;
+    transient int teamIndex = -1, typeIndex = -1;
 
     public void moveAt(Vec2 vector){
         moveAt(vector, type.accel);
@@ -275,19 +280,19 @@ abstract class UnitComp implements Healthc, Physicsc, Hitboxc, Statusc, Teamc, I
 
     @Override
     public void add(){
-        team.data().updateCount(type, 1);
+        team.data().addUnit(self());
 
         //check if over unit cap
         if(count() > cap() && !spawnedByCore && !dead && !state.rules.editor){
             Call.unitCapDeath(self());
-            team.data().updateCount(type, -1);
+            team.data().removeUnit(self());
         }
 
     }
 
     @Override
     public void remove(){
-        team.data().updateCount(type, -1);
+        if(teamData != null) teamData.removeUnit(self());
         controller.removed(self());
     }
 
@@ -302,6 +307,10 @@ abstract class UnitComp implements Healthc, Physicsc, Hitboxc, Statusc, Teamc, I
 
     @Override
     public void update(){
+        //move to the lists of the new team or type if either changed, without scanning all units every frame
+        if(teamData != null && (teamData.team != team || teamType != type)){
+            team.data().addUnit(self());
+        }
 
         type.update(self());
 
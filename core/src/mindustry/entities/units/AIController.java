@@ -5,6 +5,7 @@ import arc.math.geom.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.ai.*;
+import mindustry.async.TargetingProcess.*;
 import mindustry.entities.*;
 import mindustry.gen.*;
 import mindustry.type.*;
@@ -25,6 +26,10 @@ public class AIController implements UnitController{
     protected Teamc target;
     /** targets for each weapon */
     protected Teamc[] targets = {};
+    /** unit searches for the main target and each weapon, resolved by the targeting process */
+    protected TargetRequest[] requests = {};
+    /** resolved search used by the next {@link #target} call, if any */
+    protected @Nullable TargetRequest request;
 
     {
         timer.reset(0, Mathf.random(40f));
@@ -99,7 +104,17 @@ public class AIController implements UnitController{
         float rotation = unit.rotation - 90;
         boolean ret = retarget();
 
+        if(ret && deferTargeting()){
+            queueTargets();
+            ret = false;
+        }
+
+        //retarget once the searches have been resolved
+        boolean resolved = requests.length == unit.mounts.length + 1 && requests[0].done;
+        ret |= resolved;
+
         if(ret){
+            request = resolved ? requests[0] : null;
             target = findTarget(unit.x, unit.y, unit.range(), unit.type.targetAir, unit.type.targetGround);
         }
 
@@ -120,6 +135,7 @@ public class AIController implements UnitController{
                 targets[i] = target;
             }else{
                 if(ret){
+                    request = resolved ? requests[i + 1] : null;
                     targets[i] = findTarget(mountX, mountY, weapon.bullet.range(), weapon.bullet.collidesAir, weapon.bullet.collidesGround);
                 }
 
@@ -147,6 +163,41 @@ public class AIController implements UnitController{
                 unit.aimY = mount.aimY;
             }
         }
+
+        request = null;
+        if(resolved){
+            for(TargetRequest req : requests){
+                req.done = false;
+            }
+        }
+    }
+
+    /** Queues unit searches for the main target and each weapon, to be used on a later frame. */
+    protected void queueTargets(){
+        if(requests.length != unit.mounts.length + 1){
+            requests = new TargetRequest[unit.mounts.length + 1];
+            for(int i = 0; i < requests.length; i++){
+                requests[i] = new TargetRequest();
+            }
+        }
+
+        asyncCore.targeting.submit(requests[0].set(unit.team, unit.x, unit.y, unit.range(), unit.type.targetAir, unit.type.targetGround, unit.type.targetGround));
+
+        if(unit.type.singleTarget) return;
+
+        float rotation = unit.rotation - 90;
+        for(int i = 0; i < unit.mounts.length; i++){
+            Weapon weapon = unit.mounts[i].weapon;
+            float mountX = unit.x + Angles.trnsx(rotation, weapon.x, weapon.y),
+                mountY = unit.y + Angles.trnsy(rotation, weapon.x, weapon.y);
+
+            asyncCore.targeting.submit(requests[i + 1].set(unit.team, mountX, mountY, weapon.bullet.range(), weapon.bullet.collidesAir, weapon.bullet.collidesGround, weapon.bullet.collidesGround));
+        }
+    }
+
+    /** @return whether weapon targets are searched for on the targeting process, which delays retargeting by a frame. */
+    protected boolean deferTargeting(){
+        return true;
     }
 
     protected boolean checkTarget(Teamc target, float x, float y, float range){
@@ -163,6 +214,10 @@ public class AIController implements UnitController{
     }
 
     protected Teamc target(float x, float y, float range, boolean air, boolean ground){
+        if(request != null && request.done){
+            return request.take();
+        }
+
         return Units.closestTarget(unit.team, x, y, range, u -> u.checkTarget(air, ground), t -> ground);
     }
 
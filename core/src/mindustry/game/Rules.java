@@ -46,6 +46,8 @@ public class Rules{
     public boolean unitAmmo = false;
     /** Whether cores add to unit limit */
     public boolean unitCapVariable = true;
+    /** Whether unit separation is solved on a multithreaded grid instead of the default solver. Takes effect on the next map load. */
+    public boolean gridPhysics = false;
     /** How fast unit pads build units. */
     public float unitBuildSpeedMultiplier = 1f;
     /** How much damage any other units deal. */
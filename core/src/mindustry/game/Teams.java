@@ -11,7 +11,6 @@ import mindustry.content.*;
 import mindustry.entities.units.*;
 import mindustry.gen.*;
 import mindustry.type.*;
-import mindustry.world.blocks.payloads.*;
 import mindustry.world.blocks.storage.CoreBlock.*;
 
 import java.util.*;
@@ -28,6 +27,8 @@ public class Teams{
     public Seq<TeamData> present = new Seq<>(TeamData.class);
     /** Current boss unit. */
     public @Nullable Unit boss;
+    /** Time spent in the last {@link #updateTeamStats()}, in nanoseconds. */
+    public long lastStatsNanos;
 
     public Teams(){
         active.add(get(Team.crux));
@@ -117,7 +118,6 @@ public class Teams{
         if(data.active() && !active.contains(data)){
             active.add(data);
             updateEnemies();
-            indexer.updateTeamIndex(data.team);
         }
     }
 
@@ -132,80 +132,29 @@ public class Teams{
         }
     }
 
-    private void count(Unit unit){
-        unit.team.data().updateCount(unit.type, 1);
-
-        if(unit instanceof Payloadc payloadc){
-            payloadc.payloads().each(p -> {
-                if(p instanceof UnitPayload payload){
-                    count(payload.unit);
-                }
-            });
-        }
-    }
-
     public void updateTeamStats(){
+        long start = Time.nanos();
+
         present.clear();
         boss = null;
 
+        //building and unit lists are kept up to date as they are added, removed or change teams
         for(Team team : Team.all){
             TeamData data = team.data();
 
-            data.presentFlag = false;
-            data.unitCount = 0;
-            data.units.clear();
-            if(data.tree != null){
-                data.tree.clear();
-            }
-
-            if(data.typeCounts != null){
-                Arrays.fill(data.typeCounts, 0);
-            }
-
-            //clear old unit records
-            if(data.unitsByType != null){
-                for(int i = 0; i < data.unitsByType.length; i++){
-                    if(data.unitsByType[i] != null){
-                        data.unitsByType[i].clear();
-                    }
-                }
+            if(data.buildingCount > 0 || data.units.size > 0 || data.active()){
+                present.add(data);
             }
         }
 
-        //update presence flag.
-        Groups.build.each( b -> b.team.data().presentFlag = true);
-
-        for(Unit unit : Groups.unit){
-            TeamData data = unit.team.data();
-            data.tree().insert(unit);
-            data.units.add(unit);
-            data.presentFlag = true;
-
-            if(unit.team == state.rules.waveTeam && unit.isBoss()){
-                boss = unit;
-            }
-
-            if(data.unitsByType == null || data.unitsByType.length <= unit.type.id){
-                data.unitsByType = new Seq[content.units().size];
-            }
-
-            if(data.unitsByType[unit.type.id] == null){
-                data.unitsByType[unit.type.id] = new Seq<>();
+        Seq<Unit> waveUnits = state.rules.waveTeam.data().units;
+        for(int i = 0; i < waveUnits.size; i++){
+            if(waveUnits.items[i].isBoss()){
+                boss = waveUnits.items[i];
             }
-
-            data.unitsByType[unit.type.id].add(unit);
-
-            count(unit);
         }
 
-        //update presence of each team.
-        for(Team team : Team.all){
-            TeamData data = team.data();
-
-            if(data.presentFlag || data.active()){
-                present.add(data);
-            }
-        }
+        lastStatsNanos = Time.timeSinceNanos(start);
     }
 
     private void updateEnemies(){
@@ -231,8 +180,6 @@ public class Teams{
         public final Team team;
         public final BaseAI ai;
 
-        private boolean presentFlag;
-
         /** Enemies with cores or spawn points. */
         public Team[] coreEnemies = {};
         /** Planned blocks for drones. This is usually only blocks that have been broken. */
@@ -242,19 +189,19 @@ public class Teams{
         /** Target items to mine. */
         public Seq<Item> mineItems = Seq.with(Items.copper, Items.lead, Items.titanium, Items.thorium);
 
-        /** Total unit count. */
+        /** Total unit count, including units carried as payload. */
         public int unitCount;
         /** Counts for each type of unit. Do not access directly. */
         @Nullable
         public int[] typeCounts;
-        /** Quadtree for units of this type. Do not access directly. */
-        @Nullable
-        public QuadTree<Unit> tree;
-        /** Units of this team. Updated each frame. */
-        public Seq<Unit> units = new Seq<>();
-        /** Units of this team by type. Updated each frame. */
+        /** Amount of buildings of this team in the building group, which excludes sleeping ones. Updated as buildings are added, removed or change teams. Do not modify. */
+        public int buildingCount;
+        /** Units of this team. Updated as units are added, removed or change teams. Do not modify. */
+        public Seq<Unit> units = new Seq<>(Unit.class);
+        /** Units of this team by type. Updated as units are added, removed or change teams. Do not modify. */
         @Nullable
         public Seq<Unit>[] unitsByType;
+        private @Nullable UnitTree tree;
 
         public TeamData(Team team){
             this.team = team;
@@ -267,6 +214,65 @@ public class Teams{
             return unitsByType[type.id];
         }
 
+        /** Adds a unit to the unit lists and counts of this team, removing it from its previous team or type lists if needed. */
+        public void addUnit(Unit unit){
+            if(unit.teamData() == this && unit.teamType() == unit.type) return;
+            if(unit.teamData() != null) unit.teamData().removeUnit(unit);
+
+            unit.teamData(this);
+            unit.teamType(unit.type);
+            unit.teamIndex(units.size);
+            units.add(unit);
+
+            if(unitsByType == null || unitsByType.length <= unit.type.id){
+                unitsByType = unitsByType == null ? new Seq[content.units().size] : Arrays.copyOf(unitsByType, content.units().size);
+            }
+
+            if(unitsByType[unit.type.id] == null){
+                unitsByType[unit.type.id] = new Seq<>(Unit.class);
+            }
+
+            Seq<Unit> byType = unitsByType[unit.type.id];
+            unit.typeIndex(byType.size);
+            byType.add(unit);
+
+            updateCount(unit.type, 1);
+        }
+
+        /** Removes a unit from the unit lists and counts of this team, if it is in them. */
+        public void removeUnit(Unit unit){
+            if(unit.teamData() != this) return;
+
+            //the type may have changed since the unit was listed, so use the one it was listed under
+            UnitType type = unit.teamType();
+            unit.teamData(null);
+            unit.teamType(null);
+            swapRemove(units, unit, unit.teamIndex(), true);
+            if(unitsByType != null && unitsByType.length > type.id && unitsByType[type.id] != null){
+                swapRemove(unitsByType[type.id], unit, unit.typeIndex(), false);
+            }
+
+            updateCount(type, -1);
+        }
+
+        private void swapRemove(Seq<Unit> seq, Unit unit, int index, boolean team){
+            //stored indices are kept up to date, this is only a safeguard
+            if(index < 0 || index >= seq.size || seq.items[index] != unit){
+                index = seq.indexOf(unit, true);
+                if(index == -1) return;
+            }
+
+            Unit last = seq.pop();
+            if(index < seq.size){
+                seq.items[index] = last;
+                if(team){
+                    last.teamIndex(index);
+                }else{
+                    last.typeIndex(index);
+                }
+            }
+        }
+
         public void updateCount(UnitType type, int amount){
             if(type == null) return;
             unitCount = Math.max(amount + unitCount, 0);
@@ -276,15 +282,17 @@ public class Teams{
             typeCounts[type.id] = Math.max(amount + typeCounts[type.id], 0);
         }
 
-        public QuadTree<Unit> tree(){
-            if(tree == null) tree = new QuadTree<>(Vars.world.getQuadBounds(new Rect()));
-            return tree;
-        }
-
         public int countType(UnitType type){
             return typeCounts == null || typeCounts.length <= type.id ? 0 : typeCounts[type.id];
         }
 
+        /** @deprecated units of all teams are now in one spatial grid; query {@link Groups#unit} and filter by team instead. */
+        @Deprecated
+        public UnitTree tree(){
+            if(tree == null) tree = new UnitTree(team);
+            return tree;
+        }
+
         public boolean active(){
             return (team == state.rules.waveTeam && state.rules.waves) || cores.size > 0;
         }
@@ -316,6 +324,35 @@ public class Teams{
         }
     }
 
+    /**
+     * @deprecated transition class for mods that queried the per-team unit quadtree.
+     * Forwards queries to the unit spatial grid, keeping only units of one team.
+     */
+    @Deprecated
+    public static class UnitTree{
+        private final Team team;
+
+        UnitTree(Team team){
+            this.team = team;
+        }
+
+        public void intersect(float x, float y, float width, float height, Cons<? super Unit> out){
+            Groups.unit.intersect(x, y, width, height, unit -> {
+                if(unit.team == team) out.get(unit);
+            });
+        }
+
+        public void intersect(Rect rect, Seq<? super Unit> out){
+            intersect(rect.x, rect.y, rect.width, rect.height, out::add);
+        }
+
+        public boolean any(float x, float y, float width, float height){
+            boolean[] found = {false};
+            intersect(x, y, width, height, unit -> found[0] = true);
+            return found[0];
+        }
+    }
+
     /** Represents a block made by this team that was destroyed somewhere on the map.
      * This does not include deconstructed blocks.*/
     public static class BlockPlan{
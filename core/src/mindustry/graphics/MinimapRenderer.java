@@ -23,15 +23,33 @@ public class MinimapRenderer implements Disposable{
     private static final float baseSize = 16f;
     private final Seq<Unit> units = new Seq<>();
     private Pixmap pixmap;
+    /** pixels of the map being loaded, drawn by the load pipeline */
+    private volatile @Nullable Pixmap loadPixmap;
     private Texture texture;
     private TextureRegion region;
     private Rect rect = new Rect();
     private float zoom = 4;
 
     public MinimapRenderer(){
+        //the pixels are filled in on a load thread, and only uploaded to the texture here
+        world.loadPipeline.add("minimap", () -> {
+            Pixmap next = new Pixmap(world.width(), world.height(), Format.rgba8888);
+            Color color = new Color();
+            for(Tile tile : world.tiles){
+                next.draw(tile.x, next.getHeight() - 1 - tile.y, colorFor(tile, color));
+            }
+            loadPixmap = next;
+        }, "darkness");
+
         Events.on(WorldLoadEvent.class, event -> {
-            reset();
-            updateAll();
+            if(loadPixmap != null && loadPixmap.getWidth() == world.width() && loadPixmap.getHeight() == world.height()){
+                reset(loadPixmap);
+                texture.draw(pixmap);
+            }else{
+                reset();
+                updateAll();
+            }
+            loadPixmap = null;
         });
 
         //make sure to call on the graphics thread
@@ -64,12 +82,16 @@ public class MinimapRenderer implements Disposable{
     }
 
     public void reset(){
+        reset(new Pixmap(world.width(), world.height(), Format.rgba8888));
+    }
+
+    private void reset(Pixmap next){
         if(pixmap != null){
             pixmap.dispose();
             texture.dispose();
         }
         setZoom(4f);
-        pixmap = new Pixmap(world.width(), world.height(), Format.rgba8888);
+        pixmap = next;
         texture = new Texture(pixmap);
         region = new TextureRegion(texture);
     }
@@ -162,9 +184,13 @@ public class MinimapRenderer implements Disposable{
     }
 
     private int colorFor(Tile tile){
+        return colorFor(tile, Tmp.c1);
+    }
+
+    private int colorFor(Tile tile, Color color){
         if(tile == null) return 0;
         int bc = tile.block().minimapColor(tile);
-        Color color = Tmp.c1.set(bc == 0 ? MapIO.colorFor(tile.block(), tile.floor(), tile.overlay(), tile.team()) : bc);
+        color.set(bc == 0 ? MapIO.colorFor(tile.block(), tile.floor(), tile.overlay(), tile.team()) : bc);
         color.mul(1f - Mathf.clamp(world.getDarkness(tile.x, tile.y) / 4f));
 
         return color.rgba();
@@ -3,14 +3,17 @@ package mindustry.logic;
 import arc.struct.*;
 import mindustry.*;
 import mindustry.content.*;
-import mindustry.logic.LExecutor.*;
 import mindustry.type.*;
 import mindustry.world.*;
 
-/** Stores global constants for logic processors. */
+/**
+ * Stores global constants for logic processors.
+ * Constants are plain values looked up by name or ID; use {@link #value(int)} to read one.
+ * Processors copy the values they use when they are assembled, so changing a constant does not affect running programs.
+ */
 public class GlobalConstants{
     private ObjectIntMap<String> namesToIds = new ObjectIntMap<>();
-    private Seq<Var> vars = new Seq<>(Var.class);
+    private Seq<Object> values = new Seq<>();
 
     public void init(){
         put("the end", null);
@@ -60,25 +63,16 @@ public class GlobalConstants{
         return namesToIds.get(name, -1);
     }
 
-    /** @return a constant variable by ID. ID is not bound checked and must be positive. */
-    public Var get(int id){
-        return vars.items[id];
+    /** @return the value of a constant by ID, as a number or an object. ID is not bound checked and must be positive. */
+    public Object value(int id){
+        return values.items[id];
     }
 
-    /** Adds a constant value by name. */
-    public Var put(String name, Object value){
-        Var var = new Var(name);
-        var.constant = true;
-        if(value instanceof Number num){
-            var.numval = num.doubleValue();
-        }else{
-            var.isobj = true;
-            var.objval = value;
-        }
-
-        int index = vars.size;
+    /** Adds a constant value by name. Processors copy the values of the constants they use when they are assembled. */
+    public int put(String name, Object value){
+        int index = values.size;
         namesToIds.put(name, index);
-        vars.add(var);
-        return var;
+        values.add(value);
+        return index;
     }
 }
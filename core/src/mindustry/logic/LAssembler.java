@@ -23,6 +23,8 @@ public class LAssembler{
     public ObjectMap<String, BVar> vars = new ObjectMap<>();
     /** All instructions to be executed. */
     public LInstruction[] instructions;
+    /** Whether any statement refers to {@code @counter}. Such programs are not reordered by the {@link LOptimizer}. */
+    public boolean counterUsed;
 
     public LAssembler(){
         //instruction counter
@@ -43,6 +45,10 @@ public class LAssembler{
         Seq<LStatement> st = read(data, maxInstructions);
 
         asm.instructions = st.map(l -> l.build(asm)).filter(l -> l != null).toArray(LInstruction.class);
+
+        if(LOptimizer.enabled){
+            LOptimizer.optimize(asm);
+        }
         return asm;
     }
 
@@ -165,12 +171,16 @@ public class LAssembler{
     public int var(String symbol){
         int constId = Vars.constants.get(symbol);
         if(constId > 0){
-            //global constants are *negated* and stored separately
-            return -constId;
+            //global constants are copied into the program, so they can be read like any other variable
+            return putConst(symbol, Vars.constants.value(constId)).id;
         }
 
         symbol = symbol.trim();
 
+        if(symbol.equals("@counter")){
+            counterUsed = true;
+        }
+
         //string case
         if(symbol.startsWith("\"") && symbol.endsWith("\"")){
             return putConst("___" + symbol, symbol.substring(1, symbol.length() - 1).replace("\\n", "\n")).id;
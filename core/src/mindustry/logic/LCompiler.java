@@ -0,0 +1,240 @@
+package mindustry.logic;
+
+import mindustry.*;
+import mindustry.logic.LExecutor.*;
+
+import static mindustry.logic.LExecutor.*;
+
+/**
+ * Turns the instructions of a loaded program into instructions specialized for one executor.
+ * Literals are read as plain numbers instead of from their variables, writes to constants are dropped,
+ * and the common set, operation and jump instructions do their arithmetic directly instead of going through the lambdas of {@link LogicOp} and {@link ConditionOp}.
+ * Every other instruction is kept as it is, and runs in the interpreter as before.
+ * Compiled instructions behave exactly like the instructions they replace, including for programs that write to {@code @counter}.
+ */
+public class LCompiler{
+    /** Whether programs are compiled when they are loaded. Programs that are already loaded are not affected. */
+    public static boolean enabled = true;
+
+    /** @return the instructions of the program, specialized for the variables of the executor. The executor's variables must already be loaded. */
+    public static LInstruction[] compile(LExecutor exec, LInstruction[] instructions){
+        LInstruction[] out = new LInstruction[instructions.length];
+        for(int i = 0; i < instructions.length; i++){
+            out[i] = compile(exec, instructions[i], instructions.length);
+        }
+        return out;
+    }
+
+    static LInstruction compile(LExecutor exec, LInstruction inst, int length){
+        //subclasses may change what the instruction does, so only the exact types are compiled
+        if(inst.getClass() == SetI.class){
+            SetI i = (SetI)inst;
+
+            if(exec.constant(i.to)) return new NoopI();
+            return literal(exec, i.from) ? new SetNumC(exec.nums[i.from], i.to) : inst;
+        }else if(inst.getClass() == OpI.class){
+            OpI i = (OpI)inst;
+
+            if(exec.constant(i.dest)) return new NoopI();
+            if(i.op == LogicOp.strictEqual) return inst;
+            if(i.op.unary) return new UnaryOpC(i.op, i.a, i.dest);
+            return new OpC(i.op, i.a, i.b, i.dest);
+        }else if(inst.getClass() == JumpI.class){
+            JumpI i = (JumpI)inst;
+
+            if(i.address == -1) return new NoopI();
+            if(i.op == ConditionOp.always) return new JumpAlwaysC(i.address);
+            if(i.op == ConditionOp.strictEqual) return inst;
+
+            return literal(exec, i.compare) ?
+                new JumpNumC(i.op, i.value, exec.nums[i.compare], i.address) :
+                new JumpC(i.op, i.value, i.compare, i.address);
+        }else if(inst.getClass() == EndI.class){
+            return new EndC(length);
+        }else if(inst.getClass() == OpJumpI.class){
+            OpJumpI i = (OpJumpI)inst;
+            return new OpJumpI(compile(exec, i.op, length), compile(exec, i.jump, length));
+        }
+
+        return inst;
+    }
+
+    /** @return whether the variable is a number that can never change, i.e. a number written in the code or a global constant. */
+    static boolean literal(LExecutor exec, int index){
+        String name = exec.names[index];
+        return exec.constant(index) && !exec.isobj(index) && (name.startsWith("___") || Vars.constants.get(name) > 0);
+    }
+
+    /** Sets a number to a variable that is known not to be constant. */
+    static void setnum(LExecutor exec, int index, double value){
+        if(invalid(value)){
+            exec.objs[index] = null;
+            exec.nums[index] = 0;
+            exec.tags[index] = tagObj;
+        }else{
+            exec.nums[index] = value;
+            exec.objs[index] = null;
+            exec.tags[index] = 0;
+        }
+    }
+
+    static double op(LogicOp op, double a, double b){
+        return switch(op){
+            case add -> a + b;
+            case sub -> a - b;
+            case mul -> a * b;
+            case div -> a / b;
+            case idiv -> Math.floor(a / b);
+            case mod -> a % b;
+            case equal -> Math.abs(a - b) < 0.000001 ? 1 : 0;
+            case notEqual -> Math.abs(a - b) < 0.000001 ? 0 : 1;
+            case land -> a != 0 && b != 0 ? 1 : 0;
+            case lessThan -> a < b ? 1 : 0;
+            case lessThanEq -> a <= b ? 1 : 0;
+            case greaterThan -> a > b ? 1 : 0;
+            case greaterThanEq -> a >= b ? 1 : 0;
+            case shl -> (long)a << (long)b;
+            case shr -> (long)a >> (long)b;
+            case or -> (long)a | (long)b;
+            case and -> (long)a & (long)b;
+            case xor -> (long)a ^ (long)b;
+            case max -> Math.max(a, b);
+            case min -> Math.min(a, b);
+            default -> op.function2.get(a, b);
+        };
+    }
+
+    static boolean condition(ConditionOp op, double a, double b){
+        return switch(op){
+            case equal -> Math.abs(a - b) < 0.000001;
+            case notEqual -> Math.abs(a - b) >= 0.000001;
+            case lessThan -> a < b;
+            case lessThanEq -> a <= b;
+            case greaterThan -> a > b;
+            case greaterThanEq -> a >= b;
+            default -> op.function.get(a, b);
+        };
+    }
+
+    static class SetNumC implements LInstruction{
+        final double value;
+        final int to;
+
+        SetNumC(double value, int to){
+            this.value = value;
+            this.to = to;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.nums[to] = value;
+            exec.objs[to] = null;
+            exec.tags[to] = 0;
+        }
+    }
+
+    static class OpC implements LInstruction{
+        final LogicOp op;
+        final int a, b, dest;
+
+        OpC(LogicOp op, int a, int b, int dest){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(op.objFunction2 != null && exec.isobj(a) && exec.isobj(b)){
+                setnum(exec, dest, op.objFunction2.get(exec.objs[a], exec.objs[b]));
+            }else{
+                setnum(exec, dest, op(op, exec.nums[a], exec.nums[b]));
+            }
+        }
+    }
+
+    static class UnaryOpC implements LInstruction{
+        final LogicOp op;
+        final int a, dest;
+
+        UnaryOpC(LogicOp op, int a, int dest){
+            this.op = op;
+            this.a = a;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(exec, dest, op.function1.get(exec.nums[a]));
+        }
+    }
+
+    static class JumpC implements LInstruction{
+        final ConditionOp op;
+        final int value, compare, address;
+
+        JumpC(ConditionOp op, int value, int compare, int address){
+            this.op = op;
+            this.value = value;
+            this.compare = compare;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(op.objFunction != null && exec.isobj(value) && exec.isobj(compare) ?
+                op.objFunction.get(exec.objs[value], exec.objs[compare]) :
+                condition(op, exec.nums[value], exec.nums[compare])){
+                exec.nums[varCounter] = address;
+            }
+        }
+    }
+
+    /** A jump that compares against a number written in the code, like {@code jump 0 lessThan i 10}. */
+    static class JumpNumC implements LInstruction{
+        final ConditionOp op;
+        final int value, address;
+        final double compare;
+
+        JumpNumC(ConditionOp op, int value, double compare, int address){
+            this.op = op;
+            this.value = value;
+            this.compare = compare;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(condition(op, exec.nums[value], compare)){
+                exec.nums[varCounter] = address;
+            }
+        }
+    }
+
+    static class JumpAlwaysC implements LInstruction{
+        final int address;
+
+        JumpAlwaysC(int address){
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.nums[varCounter] = address;
+        }
+    }
+
+    static class EndC implements LInstruction{
+        final int length;
+
+        EndC(int length){
+            this.length = length;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            exec.nums[varCounter] = length;
+        }
+    }
+}
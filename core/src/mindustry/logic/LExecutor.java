@@ -23,6 +23,8 @@ import mindustry.world.blocks.logic.MessageBlock.*;
 import mindustry.world.blocks.payloads.*;
 import mindustry.world.meta.*;
 
+import java.util.*;
+
 import static mindustry.Vars.*;
 
 public class LExecutor{
@@ -39,15 +41,49 @@ public class LExecutor{
     varThis = 3,
     varTick = 4;
 
+    /** Instructions that are much more expensive to run than the rest, which are counted separately when profiling. */
+    public static final ObjectSet<Class<?>> expensiveInstructions = ObjectSet.with(RadarI.class, UnitLocateI.class, DrawI.class, DrawFlushI.class);
+
     public static final int
     maxGraphicsBuffer = 256,
     maxDisplayBuffer = 1024,
     maxTextBuffer = 256;
 
+    //variable type tags
+    public static final byte
+    tagObj = 1,
+    tagConst = 2;
+
     public LInstruction[] instructions = {};
-    public Var[] vars = {};
+
+    //variables are stored in parallel arrays, indexed by the variable IDs of the assembler
+    /** Names of variables. Only used for saving and display. */
+    public String[] names = {};
+    /**
+     * Numeric values of variables. Never NaN or infinite.
+     * Object variables hold 1 if the object is not null and 0 otherwise, so numbers can be read without checking the type.
+     */
+    public double[] nums = {};
+    /** Object values of variables. Always null for numeric variables. */
+    public Object[] objs = {};
+    /** Type tags of variables; a combination of {@link #tagObj} and {@link #tagConst}. */
+    public byte[] tags = {};
+
     public int[] binds;
 
+    //profiling, reset when a program is loaded
+    /** Amount of times each instruction ran, by index. */
+    public int[] hits = {};
+    /** Types of the instructions as they were assembled, before being compiled. Used to group {@link #hits} by type. */
+    public Class<?>[] instructionTypes = {};
+    /** Instructions run and nanoseconds spent running them, as measured by the processor. */
+    public long instructionsRun, nanos;
+    /** The time the profiling counters were last reset, in milliseconds. */
+    public long profileStart = Time.millis();
+
+    /** Set by instructions to end the current batch of {@link #run(int)} early. */
+    public boolean yield;
+
     public LongSeq graphicsBuffer = new LongSeq();
     public StringBuilder textBuffer = new StringBuilder();
     public Building[] links = {};
@@ -55,88 +91,167 @@ public class LExecutor{
     public Team team = Team.derelict;
 
     public boolean initialized(){
-        return instructions != null && vars != null && instructions.length > 0;
+        return instructions != null && nums != null && instructions.length > 0;
     }
 
     /** Runs a single instruction. */
     public void runOnce(){
+        run(1);
+    }
+
+    /**
+     * Runs up to the specified amount of instructions.
+     * The time variables are set once for the whole batch, as it runs within a single frame.
+     * The batch ends early when an instruction sets {@link #yield}, e.g. when the program is waiting, which would only waste the rest of it.
+     * @return the amount of instructions that ran.
+     */
+    public int run(int budget){
+        if(!initialized()) return 0;
+
+        //the arrays are only replaced together with the instructions, which ends the batch
+        LInstruction[] instructions = this.instructions;
+        double[] nums = this.nums;
+        int[] hits = this.hits;
+        int length = instructions.length, ran = 0;
+        this.yield = false;
+
         //set time
-        vars[varTime].numval = Time.millis();
-        vars[varTick].numval = Time.time;
+        nums[varTime] = Time.millis();
+        nums[varTick] = Time.time;
+
+        while(ran < budget){
+            //reset to start
+            double counter = nums[varCounter];
+            if(counter >= length || counter < 0){
+                counter = 0;
+            }
+
+            int index = (int)counter;
+            nums[varCounter] = counter + 1;
+            hits[index]++;
+            ran++;
+            instructions[index].run(this);
+
+            //stop when the program yields, or was replaced by the instruction
+            if(this.yield || this.instructions != instructions) break;
+        }
 
-        //reset to start
-        if(vars[varCounter].numval >= instructions.length || vars[varCounter].numval < 0){
-            vars[varCounter].numval = 0;
+        instructionsRun += ran;
+        return ran;
+    }
+
+    /** Clears all profiling counters. */
+    public void resetProfile(){
+        Arrays.fill(hits, 0);
+        instructionsRun = 0;
+        nanos = 0;
+        profileStart = Time.millis();
+    }
+
+    /** @return how many times each type of instruction ran, by the type of the assembled instruction. */
+    public ObjectIntMap<Class<?>> histogram(){
+        ObjectIntMap<Class<?>> out = new ObjectIntMap<>();
+        for(int i = 0; i < hits.length; i++){
+            if(hits[i] > 0) out.increment(instructionTypes[i], 0, hits[i]);
         }
+        return out;
+    }
 
-        if(vars[varCounter].numval < instructions.length){
-            instructions[(int)(vars[varCounter].numval++)].run(this);
+    /** @return how many times instructions in {@link #expensiveInstructions} ran. */
+    public int expensiveHits(){
+        int total = 0;
+        for(int i = 0; i < hits.length; i++){
+            if(expensiveInstructions.contains(instructionTypes[i])) total += hits[i];
         }
+        return total;
     }
 
     public void load(String data, int maxInstructions){
         load(LAssembler.assemble(data, maxInstructions));
     }
 
-    /** Loads with a specified assembler. Resets all variables. */
+    /** Loads with a specified assembler. Resets all variables. The instructions are compiled for this executor if {@link LCompiler#enabled} is set. */
     public void load(LAssembler builder){
-        vars = new Var[builder.vars.size];
-        instructions = builder.instructions;
+        int size = builder.vars.size;
+        names = new String[size];
+        nums = new double[size];
+        objs = new Object[size];
+        tags = new byte[size];
 
         builder.vars.each((name, var) -> {
-            Var dest = new Var(name);
-            vars[var.id] = dest;
-
-            dest.constant = var.constant;
+            int id = var.id;
+            names[id] = name;
 
             if(var.value instanceof Number number){
-                dest.isobj = false;
-                dest.numval = number.doubleValue();
+                nums[id] = invalid(number.doubleValue()) ? 0 : number.doubleValue();
             }else{
-                dest.isobj = true;
-                dest.objval = var.value;
+                objs[id] = var.value;
+                nums[id] = var.value != null ? 1 : 0;
+                tags[id] = tagObj;
+            }
+
+            if(var.constant){
+                tags[id] |= tagConst;
             }
         });
+
+        instructions = LCompiler.enabled ? LCompiler.compile(this, builder.instructions) : builder.instructions;
+
+        instructionTypes = new Class<?>[builder.instructions.length];
+        for(int i = 0; i < instructionTypes.length; i++){
+            instructionTypes[i] = builder.instructions[i].getClass();
+        }
+        hits = new int[instructions.length];
+        resetProfile();
     }
 
     //region utility
 
-    private static boolean invalid(double d){
+    static boolean invalid(double d){
         return Double.isNaN(d) || Double.isInfinite(d);
     }
 
-    public Var var(int index){
-        //global constants have variable IDs < 0, and they are fetched from the global constants object after being negated
-        return index < 0 ? constants.get(-index) : vars[index];
+    public boolean isobj(int index){
+        return (tags[index] & tagObj) != 0;
+    }
+
+    public boolean constant(int index){
+        return (tags[index] & tagConst) != 0;
+    }
+
+    /** @return the value of a variable as a boxed number or an object. Allocates; only meant for saving. */
+    public @Nullable Object value(int index){
+        return isobj(index) ? objs[index] : (Object)nums[index];
     }
 
     public @Nullable Building building(int index){
-        Object o = var(index).objval;
-        return var(index).isobj && o instanceof Building building ? building : null;
+        return objs[index] instanceof Building building ? building : null;
     }
 
     public @Nullable Object obj(int index){
-        Object o = var(index).objval;
-        return var(index).isobj ? o : null;
+        return objs[index];
     }
 
     public boolean bool(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null : Math.abs(v.numval) >= 0.00001;
+        return Math.abs(nums[index]) >= 0.00001;
     }
 
     public double num(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null ? 1 : 0 : invalid(v.numval) ? 0 : v.numval;
+        return nums[index];
     }
 
     public float numf(int index){
-        Var v = var(index);
-        return v.isobj ? v.objval != null ? 1 : 0 : invalid(v.numval) ? 0 : (float)v.numval;
+        return (float)nums[index];
     }
 
     public int numi(int index){
-        return (int)num(index);
+        return (int)nums[index];
+    }
+
+    /** @return whether both variables have the same type, and the same number or the same object. */
+    public boolean strictEqual(int a, int b){
+        boolean obj = isobj(a);
+        return obj == isobj(b) && (obj ? objs[a] == objs[b] : nums[a] == nums[b]);
     }
 
     public void setbool(int index, boolean value){
@@ -144,47 +259,41 @@ public class LExecutor{
     }
 
     public void setnum(int index, double value){
-        Var v = var(index);
-        if(v.constant) return;
+        if((tags[index] & tagConst) != 0) return;
         if(invalid(value)){
-            v.objval = null;
-            v.isobj = true;
+            objs[index] = null;
+            nums[index] = 0;
+            tags[index] = tagObj;
         }else{
-            v.numval = value;
-            v.objval = null;
-            v.isobj = false;
+            nums[index] = value;
+            objs[index] = null;
+            tags[index] = 0;
         }
     }
 
     public void setobj(int index, Object value){
-        Var v = var(index);
-        if(v.constant) return;
-        v.objval = value;
-        v.isobj = true;
+        if((tags[index] & tagConst) != 0) return;
+        objs[index] = value;
+        nums[index] = value != null ? 1 : 0;
+        tags[index] = tagObj;
     }
 
     public void setconst(int index, Object value){
-        Var v = var(index);
-        v.objval = value;
-        v.isobj = true;
+        objs[index] = value;
+        nums[index] = value != null ? 1 : 0;
+        tags[index] |= tagObj;
     }
 
-    //endregion
-
-    /** A logic variable. */
-    public static class Var{
-        public final String name;
-
-        public boolean isobj, constant;
-
-        public Object objval;
-        public double numval;
-
-        public Var(String name){
-            this.name = name;
-        }
+    /** Copies the value of a variable into another one. */
+    public void set(int to, int from){
+        if((tags[to] & tagConst) != 0) return;
+        nums[to] = nums[from];
+        objs[to] = objs[from];
+        tags[to] = (byte)(tags[from] & tagObj);
     }
 
+    //endregion
+
     //region instruction types
 
     public interface LInstruction{
@@ -759,19 +868,8 @@ public class LExecutor{
 
         @Override
         public void run(LExecutor exec){
-            Var v = exec.var(to);
-            Var f = exec.var(from);
-
             //TODO error out when the from-value is a constant
-            if(!v.constant){
-                if(f.isobj){
-                    v.objval = f.objval;
-                    v.isobj = true;
-                }else{
-                    v.numval = invalid(f.numval) ? 0 : f.numval;
-                    v.isobj = false;
-                }
-            }
+            exec.set(to, from);
         }
     }
 
@@ -791,15 +889,11 @@ public class LExecutor{
         @Override
         public void run(LExecutor exec){
             if(op == LogicOp.strictEqual){
-                Var v = exec.var(a), v2 = exec.var(b);
-                exec.setnum(dest, v.isobj == v2.isobj && ((v.isobj && v.objval == v2.objval) || (!v.isobj && v.numval == v2.numval)) ? 1 : 0);
+                exec.setnum(dest, exec.strictEqual(a, b) ? 1 : 0);
             }else if(op.unary){
                 exec.setnum(dest, op.function1.get(exec.num(a)));
             }else{
-                Var va = exec.var(a);
-                Var vb = exec.var(b);
-
-                if(op.objFunction2 != null && va.isobj && vb.isobj){
+                if(op.objFunction2 != null && exec.isobj(a) && exec.isobj(b)){
                     //use object function if both are objects
                     exec.setnum(dest, op.objFunction2.get(exec.obj(a), exec.obj(b)));
                 }else{
@@ -815,7 +909,7 @@ public class LExecutor{
 
         @Override
         public void run(LExecutor exec){
-            exec.var(varCounter).numval = exec.instructions.length;
+            exec.nums[varCounter] = exec.instructions.length;
         }
     }
 
@@ -902,25 +996,26 @@ public class LExecutor{
             if(exec.textBuffer.length() >= maxTextBuffer) return;
 
             //this should avoid any garbage allocation
-            Var v = exec.var(value);
-            if(v.isobj && value != 0){
+            if(exec.isobj(value) && value != 0){
+                Object obj = exec.objs[value];
                 String strValue =
-                    v.objval == null ? "null" :
-                    v.objval instanceof String s ? s :
-                    v.objval == Blocks.stoneWall ? "solid" : //special alias
-                    v.objval instanceof MappableContent content ? content.name :
-                    v.objval instanceof Content ? "[content]" :
-                    v.objval instanceof Building build ? build.block.name :
-                    v.objval instanceof Unit unit ? unit.type.name :
+                    obj == null ? "null" :
+                    obj instanceof String s ? s :
+                    obj == Blocks.stoneWall ? "solid" : //special alias
+                    obj instanceof MappableContent content ? content.name :
+                    obj instanceof Content ? "[content]" :
+                    obj instanceof Building build ? build.block.name :
+                    obj instanceof Unit unit ? unit.type.name :
                     "[object]";
 
                 exec.textBuffer.append(strValue);
             }else{
+                double num = exec.nums[value];
                 //display integer version when possible
-                if(Math.abs(v.numval - (long)v.numval) < 0.000001){
-                    exec.textBuffer.append((long)v.numval);
+                if(Math.abs(num - (long)num) < 0.000001){
+                    exec.textBuffer.append((long)num);
                 }else{
-                    exec.textBuffer.append(v.numval);
+                    exec.textBuffer.append(num);
                 }
             }
         }
@@ -966,13 +1061,11 @@ public class LExecutor{
         @Override
         public void run(LExecutor exec){
             if(address != -1){
-                Var va = exec.var(value);
-                Var vb = exec.var(compare);
                 boolean cmp;
 
                 if(op == ConditionOp.strictEqual){
-                    cmp = va.isobj == vb.isobj && ((va.isobj && va.objval == vb.objval) || (!va.isobj && va.numval == vb.numval));
-                }else if(op.objFunction != null && va.isobj && vb.isobj){
+                    cmp = exec.strictEqual(value, compare);
+                }else if(op.objFunction != null && exec.isobj(value) && exec.isobj(compare)){
                     //use object function if both are objects
                     cmp = op.objFunction.get(exec.obj(value), exec.obj(compare));
                 }else{
@@ -980,12 +1073,31 @@ public class LExecutor{
                 }
 
                 if(cmp){
-                    exec.var(varCounter).numval = address;
+                    exec.nums[varCounter] = address;
                 }
             }
         }
     }
 
+    /** An operation followed by a jump, fused into one instruction by the {@link LOptimizer}. */
+    public static class OpJumpI implements LInstruction{
+        public LInstruction op, jump;
+
+        public OpJumpI(LInstruction op, LInstruction jump){
+            this.op = op;
+            this.jump = jump;
+        }
+
+        public OpJumpI(){
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            op.run(exec);
+            jump.run(exec);
+        }
+    }
+
     public static class WaitI implements LInstruction{
         public int value;
 
@@ -1006,8 +1118,9 @@ public class LExecutor{
             if(curTime >= exec.num(value)){
                 curTime = 0f;
             }else{
-                //skip back to self.
-                exec.var(varCounter).numval --;
+                //skip back to self, and wait for the next batch instead of running again right away
+                exec.nums[varCounter] --;
+                exec.yield = true;
             }
 
             if(Core.graphics.getFrameId() != frameId){
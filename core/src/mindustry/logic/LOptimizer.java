@@ -0,0 +1,251 @@
+package mindustry.logic;
+
+import arc.struct.*;
+import mindustry.*;
+import mindustry.logic.LAssembler.*;
+import mindustry.logic.LExecutor.*;
+
+/**
+ * Simplifies assembled programs, so they use up less of the processor's instruction budget.
+ * Operations and jumps on literals are computed ahead of time, and jumps to unconditional jumps go straight to their final target.
+ * Unless the program uses {@code @counter}, unreachable instructions, no-ops and values that are overwritten before being read are removed,
+ * and operations followed by a jump are fused into one instruction. Programs that use {@code @counter} keep every instruction at its index.
+ * Only set, op, jump and end instructions are understood; any other instruction is assumed to read every variable.
+ */
+public class LOptimizer{
+    /** Whether assembled programs are optimized. */
+    public static boolean enabled = true;
+
+    private final LAssembler asm;
+    private final Seq<LInstruction> instructions;
+    /** assembler variables by ID */
+    private final BVar[] vars;
+    private final ObjectMap<BVar, String> names = new ObjectMap<>();
+
+    private LOptimizer(LAssembler asm){
+        this.asm = asm;
+        this.instructions = new Seq<>(asm.instructions);
+        this.vars = new BVar[asm.vars.size];
+        for(var entry : asm.vars){
+            vars[entry.value.id] = entry.value;
+            names.put(entry.value, entry.key);
+        }
+    }
+
+    /** Optimizes the instructions of an assembler in place. */
+    public static void optimize(LAssembler asm){
+        new LOptimizer(asm).run();
+    }
+
+    void run(){
+        fold();
+        thread();
+
+        if(!asm.counterUsed){
+            int size = instructions.size;
+            boolean[] keep = new boolean[size];
+            reachable(keep);
+            removeDeadStores(keep);
+            //only collect the jumps that are kept, as fusing may nest them in other instructions
+            Seq<JumpI> jumps = new Seq<>();
+            for(int i = 0; i < size; i++){
+                if(keep[i] && instructions.get(i) instanceof JumpI jump) jumps.add(jump);
+            }
+            fuse(keep);
+            compact(keep, jumps);
+        }
+
+        asm.instructions = instructions.toArray(LInstruction.class);
+    }
+
+    /** Replaces operations and jumps on literals with their result. */
+    void fold(){
+        for(int i = 0; i < instructions.size; i++){
+            LInstruction inst = instructions.get(i);
+
+            if(inst.getClass() == OpI.class){
+                OpI op = (OpI)inst;
+                if(op.op == LogicOp.rand || !literal(op.a) || (!op.op.unary && !literal(op.b))) continue;
+
+                double a = value(op.a), b = op.op.unary ? 0 : value(op.b);
+                double result =
+                    op.op == LogicOp.strictEqual ? (a == b ? 1 : 0) :
+                    op.op.unary ? op.op.function1.get(a) :
+                    op.op.function2.get(a, b);
+
+                //invalid results turn into null, which has no literal
+                if(LExecutor.invalid(result)) continue;
+
+                instructions.set(i, new SetI(asm.putConst("___" + result, result).id, op.dest));
+            }else if(inst.getClass() == JumpI.class){
+                JumpI jump = (JumpI)inst;
+                if(jump.address == -1 || jump.op == ConditionOp.always || !literal(jump.value) || !literal(jump.compare)) continue;
+
+                double a = value(jump.value), b = value(jump.compare);
+                if(jump.op == ConditionOp.strictEqual ? a == b : jump.op.function.get(a, b)){
+                    jump.op = ConditionOp.always;
+                }else{
+                    instructions.set(i, new NoopI());
+                }
+            }
+        }
+    }
+
+    /** Points jumps that land on unconditional jumps to the final target. */
+    void thread(){
+        for(int i = 0; i < instructions.size; i++){
+            if(!(instructions.get(i) instanceof JumpI jump) || jump.address == -1) continue;
+
+            //stop after as many jumps as there are instructions, in case they form a loop
+            for(int hops = 0; hops < instructions.size && jump.address >= 0 && jump.address < instructions.size; hops++){
+                if(instructions.get(jump.address) instanceof JumpI next && next.op == ConditionOp.always && next.address != -1 && next != jump){
+                    jump.address = next.address;
+                }else{
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Marks instructions that can be reached from the start of the program. */
+    void reachable(boolean[] out){
+        IntSeq stack = new IntSeq();
+        stack.add(0);
+
+        while(!stack.isEmpty()){
+            int i = stack.pop();
+            //jumps out of the program and the end of the program wrap around to the start
+            if(i < 0 || i >= instructions.size) i = 0;
+            if(out[i]) continue;
+            out[i] = true;
+
+            LInstruction inst = instructions.get(i);
+            if(inst instanceof JumpI jump && jump.address != -1){
+                stack.add(jump.address);
+                if(jump.op != ConditionOp.always) stack.add(i + 1);
+            }else if(inst instanceof EndI){
+                stack.add(0);
+            }else{
+                stack.add(i + 1);
+            }
+        }
+    }
+
+    /** Removes no-ops, and sets and operations whose result is overwritten later in the same block without being read. */
+    void removeDeadStores(boolean[] keep){
+        boolean[] targets = targets(keep);
+
+        for(int i = 0; i < instructions.size; i++){
+            if(!keep[i]) continue;
+
+            LInstruction inst = instructions.get(i);
+            if(inst.getClass() == NoopI.class){
+                keep[i] = false;
+                continue;
+            }
+
+            int dest = dest(inst);
+            if(dest <= LExecutor.varCounter || vars[dest].constant) continue;
+
+            for(int j = i + 1; j < instructions.size && !targets[j]; j++){
+                if(!keep[j]) continue;
+
+                LInstruction next = instructions.get(j);
+                if(reads(next, dest)) break;
+                if(dest(next) == dest){
+                    keep[i] = false;
+                    break;
+                }
+                //the value may be read after leaving the block
+                if(!(next.getClass() == SetI.class || next.getClass() == OpI.class || next.getClass() == NoopI.class)) break;
+            }
+        }
+    }
+
+    /** Fuses operations with the jumps that follow them. */
+    void fuse(boolean[] keep){
+        boolean[] targets = targets(keep);
+
+        for(int i = 0; i < instructions.size - 1; i++){
+            if(!keep[i] || instructions.get(i).getClass() != OpI.class) continue;
+
+            //find the next kept instruction, which runs right after this one; jumps to removed instructions in between land on it too
+            int j = i + 1;
+            boolean target = false;
+            while(j < instructions.size && !keep[j]){
+                target |= targets[j];
+                j++;
+            }
+
+            if(j < instructions.size && !target && !targets[j] && instructions.get(j).getClass() == JumpI.class){
+                instructions.set(i, new OpJumpI(instructions.get(i), instructions.get(j)));
+                keep[j] = false;
+                i = j;
+            }
+        }
+    }
+
+    /** Removes all instructions that are not kept, and moves jumps to the new indices of their targets. */
+    void compact(boolean[] keep, Seq<JumpI> jumps){
+        int size = instructions.size;
+        //maps old indices to the first kept instruction at or after them
+        int[] index = new int[size + 1];
+        int kept = 0;
+        for(int i = 0; i < size; i++){
+            index[i] = kept;
+            if(keep[i]) kept++;
+        }
+        index[size] = kept;
+
+        for(JumpI jump : jumps){
+            if(jump.address >= 0){
+                jump.address = index[Math.min(jump.address, size)];
+            }
+        }
+
+        Seq<LInstruction> out = new Seq<>(kept);
+        for(int i = 0; i < size; i++){
+            if(keep[i]) out.add(instructions.get(i));
+        }
+
+        //an empty program would not run at all, instead of doing nothing
+        if(out.isEmpty() && size > 0) out.add(new NoopI());
+
+        instructions.clear();
+        instructions.addAll(out);
+    }
+
+    boolean[] targets(boolean[] keep){
+        boolean[] out = new boolean[instructions.size + 1];
+        for(int i = 0; i < instructions.size; i++){
+            if(keep[i] && instructions.get(i) instanceof JumpI jump && jump.address >= 0 && jump.address < instructions.size){
+                out[jump.address] = true;
+            }
+        }
+        return out;
+    }
+
+    /** @return the variable written by a set or an operation, or -1. */
+    static int dest(LInstruction inst){
+        return inst.getClass() == SetI.class ? ((SetI)inst).to : inst.getClass() == OpI.class ? ((OpI)inst).dest : -1;
+    }
+
+    /** @return whether the instruction may read the variable. */
+    static boolean reads(LInstruction inst, int var){
+        if(inst.getClass() == SetI.class) return ((SetI)inst).from == var;
+        if(inst.getClass() == OpI.class) return ((OpI)inst).a == var || (!((OpI)inst).op.unary && ((OpI)inst).b == var);
+        if(inst.getClass() == JumpI.class) return ((JumpI)inst).value == var || ((JumpI)inst).compare == var;
+        return inst.getClass() != NoopI.class && inst.getClass() != EndI.class;
+    }
+
+    /** @return whether the variable is a number that can never change, i.e. a number written in the code or a global constant. */
+    boolean literal(int id){
+        BVar var = vars[id];
+        String name = names.get(var);
+        return var.constant && var.value instanceof Number && (name.startsWith("___") || Vars.constants.get(name) > 0);
+    }
+
+    double value(int id){
+        return ((Number)vars[id].value).doubleValue();
+    }
+}
@@ -257,7 +257,14 @@ public abstract class BasicGenerator implements WorldGenerator{
     }
 
     public Seq<Tile> pathfind(int startX, int startY, int endX, int endY, TileHueristic th, DistanceHeuristic dh){
-        return Astar.pathfind(startX, startY, endX, endY, th, dh, tile -> world.getDarkness(tile.x, tile.y) <= 1f);
+        Boolf<Tile> passable = tile -> world.getDarkness(tile.x, tile.y) <= 1f;
+
+        //the hierarchical graph estimates remaining distance in tile steps, so other heuristics need a full search
+        if(dh != Astar.manhattan){
+            return Astar.pathfind(startX, startY, endX, endY, th, dh, passable);
+        }
+
+        return HierarchicalPathfinder.of(th, passable).pathfind(tiles.getn(startX, startY), tiles.getn(endX, endY));
     }
 
     public void trimDark(){
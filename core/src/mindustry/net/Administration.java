@@ -476,6 +476,10 @@ public class Administration{
         allowCustomClients("Whether custom clients are allowed to connect.", !headless, "allow-custom"),
         whitelist("Whether the whitelist is used.", false),
         motd("The message displayed to people on connection.", "off"),
+        snapshotCulling("Whether entity snapshots only contain entities near each player's view. Distant entities are updated less often.", true),
+        deltaSnapshots("Whether entity snapshots only contain fields that changed since the last snapshot sent to each player. Uses less bandwidth, but entities are serialized and compressed separately for each player, instead of once per sync for all players.", false),
+        packetBudget("Maximum packets handled per connection each tick. Excess packets are delayed to the next tick. 0 to disable.", 200),
+        pathfinderThreads("Amount of threads used to compute unit flow fields. Takes effect on the next map load.", 1),
         autosave("Whether the periodically save the map when playing.", false),
         autosaveAmount("The maximum amount of autosaves. Older ones get replaced.", 10),
         autosaveSpacing("Spacing between autosaves in seconds.", 60 * 5),
@@ -15,7 +15,6 @@ import java.io.*;
 import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
-import java.util.concurrent.*;
 
 import static mindustry.Vars.*;
 
@@ -24,7 +23,8 @@ public class ArcNetProvider implements NetProvider{
     final Prov<DatagramPacket> packetSupplier = () -> new DatagramPacket(new byte[512], 512);
 
     final Server server;
-    final CopyOnWriteArrayList<ArcConnection> connections = new CopyOnWriteArrayList<>();
+    /** Connections by Arc connection ID. Looked up on the network thread for every received packet, so this must not scan or allocate. */
+    final ConnectionTable<ArcConnection> connections = new ConnectionTable<>();
     Thread serverThread;
 
     public ArcNetProvider(){
@@ -89,8 +89,9 @@ public class ArcNetProvider implements NetProvider{
 
                 Log.debug("&bReceived connection: @", c.addressTCP);
 
-                connections.add(kn);
-                Core.app.post(() -> net.handleServerReceived(kn, c));
+                connections.put(connection.getID(), kn);
+                //queued like any other packet, so it is always handled before the packets that follow it
+                kn.inbound.offer(c);
             }
 
             @Override
@@ -102,8 +103,10 @@ public class ArcNetProvider implements NetProvider{
                 c.reason = reason.toString();
 
                 Core.app.post(() -> {
+                    //packets received before the disconnect must still be handled first
+                    k.handleQueued(0);
                     net.handleServerReceived(k, c);
-                    connections.remove(k);
+                    connections.remove(connection.getID(), k);
                 });
             }
 
@@ -112,13 +115,11 @@ public class ArcNetProvider implements NetProvider{
                 ArcConnection k = getByArcID(connection.getID());
                 if(object instanceof FrameworkMessage || k == null) return;
 
-                Core.app.post(() -> {
-                    try{
-                        net.handleServerReceived(k, object);
-                    }catch(Throwable e){
-                        e.printStackTrace();
-                    }
-                });
+                //handled in batches by the server at the start of each update
+                if(!k.inbound.offer(object)){
+                    Log.warn("Connection @ exceeded the inbound packet queue limit. Disconnecting.", k.address);
+                    connection.close(DcReason.error);
+                }
             }
         });
     }
@@ -259,14 +260,7 @@ public class ArcNetProvider implements NetProvider{
     }
 
     ArcConnection getByArcID(int id){
-        for(int i = 0; i < connections.size(); i++){
-            ArcConnection con = connections.get(i);
-            if(con.connection != null && con.connection.getID() == id){
-                return con;
-            }
-        }
-
-        return null;
+        return connections.get(id);
     }
 
     class ArcConnection extends NetConnection{
@@ -320,8 +314,7 @@ public class ArcNetProvider implements NetProvider{
                 Log.info("Error sending packet. Disconnecting invalid client!");
                 connection.close(DcReason.error);
 
-                ArcConnection k = getByArcID(connection.getID());
-                if(k != null) connections.remove(k);
+                connections.remove(connection.getID());
             }
         }
 
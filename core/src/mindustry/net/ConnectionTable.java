@@ -0,0 +1,119 @@
+package mindustry.net;
+
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * Maps int connection IDs to connections.
+ * Lookups do not lock or allocate, so they can be done for every received packet on any thread.
+ * Adding or removing a connection copies the table, which is cheap at the rate connections open and close.
+ */
+@SuppressWarnings("unchecked")
+public class ConnectionTable<T> implements Iterable<T>{
+    private volatile Table table = new Table(new int[0], new Object[0]);
+
+    /** @return the value for this ID, or null if there is none. May be called from any thread. */
+    public @Nullable T get(int id){
+        Table t = table;
+        for(int i = id & t.mask; t.slots[i] != null; i = (i + 1) & t.mask){
+            if(t.slotIds[i] == id) return (T)t.slots[i];
+        }
+        return null;
+    }
+
+    /** Adds a value, replacing any previous value with the same ID. */
+    public synchronized void put(int id, T value){
+        Table t = table;
+        int index = t.indexOf(id);
+        int[] ids = index == -1 ? Arrays.copyOf(t.ids, t.ids.length + 1) : t.ids.clone();
+        Object[] items = index == -1 ? Arrays.copyOf(t.items, t.items.length + 1) : t.items.clone();
+        if(index == -1) index = ids.length - 1;
+
+        ids[index] = id;
+        items[index] = value;
+        table = new Table(ids, items);
+    }
+
+    /** Removes the value with this ID. */
+    public synchronized void remove(int id){
+        remove(id, null);
+    }
+
+    /** Removes the value with this ID, but only if it is the given value. A null value matches anything. */
+    public synchronized void remove(int id, @Nullable T value){
+        Table t = table;
+        int index = t.indexOf(id);
+        if(index == -1 || (value != null && t.items[index] != value)) return;
+
+        int last = t.ids.length - 1;
+        int[] ids = Arrays.copyOf(t.ids, last);
+        Object[] items = Arrays.copyOf(t.items, last);
+        if(index < last){
+            ids[index] = t.ids[last];
+            items[index] = t.items[last];
+        }
+        table = new Table(ids, items);
+    }
+
+    public synchronized void clear(){
+        table = new Table(new int[0], new Object[0]);
+    }
+
+    public int size(){
+        return table.ids.length;
+    }
+
+    /** Iterates over a snapshot of the table; changes made during iteration are not visible. */
+    @Override
+    public Iterator<T> iterator(){
+        Object[] items = table.items;
+
+        return new Iterator<>(){
+            int index;
+
+            @Override
+            public boolean hasNext(){
+                return index < items.length;
+            }
+
+            @Override
+            public T next(){
+                if(index >= items.length) throw new NoSuchElementException();
+                return (T)items[index++];
+            }
+        };
+    }
+
+    /** An immutable set of values, in insertion order and hashed by ID with linear probing. */
+    private static class Table{
+        final int[] ids, slotIds;
+        final Object[] items, slots;
+        final int mask;
+
+        Table(int[] ids, Object[] items){
+            this.ids = ids;
+            this.items = items;
+
+            //at most half full, so probes stay short and there is always an empty slot
+            int capacity = Integer.highestOneBit(Math.max(ids.length * 2, 4) - 1) << 1;
+            slotIds = new int[capacity];
+            slots = new Object[capacity];
+            mask = capacity - 1;
+
+            for(int i = 0; i < ids.length; i++){
+                int slot = ids[i] & mask;
+                while(slots[slot] != null) slot = (slot + 1) & mask;
+                slotIds[slot] = ids[i];
+                slots[slot] = items[i];
+            }
+        }
+
+        int indexOf(int id){
+            for(int i = 0; i < ids.length; i++){
+                if(ids[i] == id) return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -13,6 +13,9 @@ import java.io.*;
 import static mindustry.Vars.*;
 
 public abstract class NetConnection{
+    /** Maximum amount of packets waiting to be handled. Connections that exceed this are flooding and get disconnected. */
+    public static final int inboundCapacity = 4096;
+
     public final String address;
     public String uuid = "AAAAAAAA", usid = uuid;
     public boolean mobile, modclient;
@@ -26,9 +29,32 @@ public abstract class NetConnection{
     /** Build requests that have been recently rejected. This is cleared every snapshot. */
     public Seq<BuildPlan> rejectedRequests = new Seq<>();
 
+    /** Packets received by the network thread, waiting to be handled on the main thread. */
+    public final PacketQueue inbound = new PacketQueue(inboundCapacity);
+    /** Packets handled in the last drain of the inbound queue, and packets left waiting afterwards. */
+    public int lastPacketsHandled, lastQueueDepth;
+    /** Nanoseconds spent handling packets in the last drain of the inbound queue. */
+    public long lastDrainNanos;
+
     public boolean hasConnected, hasBegunConnecting, hasDisconnected;
     public float viewWidth, viewHeight, viewX, viewY;
 
+    /** IDs of synced entities this connection currently knows about. Only maintained when snapshot culling is enabled. */
+    public IntSet syncedEntities = new IntSet();
+    /** IDs of known entities the client has not confirmed receiving yet, mapped to the snapshot round they were first written in. */
+    public IntIntMap unconfirmedEntities = new IntIntMap();
+    /** Latest entity snapshot round of which the client has received every packet. */
+    public int confirmedSnapshotRound = -1;
+    /** Last entity state sent to this connection, by entity ID. Only maintained when delta snapshots are enabled. */
+    public IntMap<SyncBaseline> syncBaselines = new IntMap<>();
+    /** Sequence number of the next delta snapshot packet. Used by clients to detect lost packets. */
+    public int snapshotSequence;
+    /** Amount of entity snapshots sent to this connection. */
+    public int snapshotsSent;
+    /** Entities written in the last snapshot, and in total. */
+    public int lastEntitiesSynced;
+    public long totalEntitiesSynced;
+
     public NetConnection(String address){
         this.address = address;
     }
@@ -74,6 +100,34 @@ public abstract class NetConnection{
         kicked = true;
     }
 
+    /**
+     * Handles packets queued by the network thread, in the order they were received.
+     * @param budget the maximum amount of packets to handle; any remaining packets wait until the next call. Values <= 0 mean no limit.
+     */
+    public void handleQueued(int budget){
+        if(inbound.isEmpty()){
+            lastPacketsHandled = lastQueueDepth = 0;
+            return;
+        }
+
+        long start = Time.nanos();
+        int handled = 0;
+        Object object;
+
+        while((budget <= 0 || handled < budget) && (object = inbound.poll()) != null){
+            try{
+                net.handleServerReceived(this, object);
+            }catch(Throwable e){
+                Log.err(e);
+            }
+            handled++;
+        }
+
+        lastPacketsHandled = handled;
+        lastQueueDepth = inbound.size();
+        lastDrainNanos = Time.timeSinceNanos(start);
+    }
+
     public boolean isConnected(){
         return true;
     }
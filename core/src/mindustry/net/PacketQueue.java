@@ -0,0 +1,68 @@
+package mindustry.net;
+
+import arc.util.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded, lock-free multi-producer single-consumer queue.
+ * Used to pass received packets from network threads to the main thread without allocating a task for each one.
+ */
+public class PacketQueue{
+    private final AtomicReferenceArray<Object> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private final int mask;
+    /** Only written by the consumer. */
+    private volatile long head;
+
+    /** @param capacity the maximum number of queued objects; rounded up to a power of two. */
+    public PacketQueue(int capacity){
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an object to the queue. May be called from any thread.
+     * @return false if the queue is full.
+     */
+    public boolean offer(Object object){
+        long t;
+        do{
+            t = tail.get();
+            if(t - head >= slots.length()) return false;
+        }while(!tail.compareAndSet(t, t + 1));
+
+        slots.lazySet((int)(t & mask), object);
+        return true;
+    }
+
+    /**
+     * Removes the next object from the queue. Must only be called from the consumer thread.
+     * @return the object, or null if the queue is empty.
+     */
+    public @Nullable Object poll(){
+        int index = (int)(head & mask);
+        Object object = slots.get(index);
+        //either empty, or a producer has claimed the slot but not published it yet
+        if(object == null) return null;
+
+        slots.lazySet(index, null);
+        head = head + 1;
+        return object;
+    }
+
+    /** @return the approximate number of queued objects. */
+    public int size(){
+        return (int)Math.max(tail.get() - head, 0);
+    }
+
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /** Removes all queued objects. Must only be called from the consumer thread. */
+    public void clear(){
+        while(poll() != null);
+    }
+}
@@ -0,0 +1,9 @@
+package mindustry.net;
+
+/** The last state of a synced entity that was sent to a specific connection. Used for delta-encoded entity snapshots. */
+public class SyncBaseline{
+    /** Raw bits of each comparable field, in revision order. Managed by generated code. */
+    public long[] values = {};
+    /** If true, the next write must contain every field. */
+    public boolean invalid = true;
+}
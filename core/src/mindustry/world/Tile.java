@@ -634,8 +634,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
     @Remote(called = Loc.server)
     public static void setTeam(Building build, Team team){
         if(build != null){
-            build.team = team;
-            indexer.updateIndices(build.tile);
+            build.team(team);
         }
     }
 
@@ -11,6 +11,7 @@ import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
 import mindustry.annotations.Annotations.*;
+import mindustry.async.TargetingProcess.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.entities.*;
@@ -146,6 +147,8 @@ public class Turret extends ReloadTurret{
         public Vec2 targetPos = new Vec2();
         public BlockUnitc unit = Nulls.blockUnit;
         public boolean wasShooting, charging;
+        /** search for a new target; resolved by the targeting process */
+        public TargetRequest targetRequest = new TargetRequest(e -> !e.dead() && (e.isGrounded() || targetAir) && (!e.isGrounded() || targetGround));
 
         @Override
         public void created(){
@@ -262,6 +265,10 @@ public class Turret extends ReloadTurret{
                     findTarget();
                 }
 
+                if(targetRequest.done){
+                    target = targetRequest.take();
+                }
+
                 if(validateTarget()){
                     boolean canShoot = true;
 
@@ -309,12 +316,10 @@ public class Turret extends ReloadTurret{
             return !Units.invalidateTarget(target, team, x, y) || isControlled() || logicControlled();
         }
 
+        /** Queues a search for a new target. The result is picked up in {@link #updateTile()} once it is resolved. */
         protected void findTarget(){
-            if(targetAir && !targetGround){
-                target = Units.bestEnemy(team, x, y, range, e -> !e.dead() && !e.isGrounded(), unitSort);
-            }else{
-                target = Units.bestTarget(team, x, y, range, e -> !e.dead() && (e.isGrounded() || targetAir) && (!e.isGrounded() || targetGround), b -> true, unitSort);
-            }
+            targetRequest.sort = unitSort;
+            asyncCore.targeting.submit(targetRequest.set(team, x, y, range, targetAir, targetGround, !(targetAir && !targetGround)));
         }
 
         protected void turnToTarget(float targetRot){
@@ -15,7 +15,6 @@ import mindustry.graphics.*;
 import mindustry.io.*;
 import mindustry.logic.*;
 import mindustry.logic.LAssembler.*;
-import mindustry.logic.LExecutor.*;
 import mindustry.ui.*;
 import mindustry.world.*;
 import mindustry.world.blocks.ConstructBlock.*;
@@ -316,12 +315,12 @@ public class LogicBlock extends Block{
 
                     if(keep){
                         //store any older variables
-                        for(Var var : executor.vars){
-                            boolean unit = var.name.equals("@unit");
-                            if(!var.constant || unit){
-                                BVar dest = asm.getVar(var.name);
+                        for(int i = 0; i < executor.names.length; i++){
+                            boolean unit = i == LExecutor.varUnit;
+                            if(!executor.constant(i) || unit){
+                                BVar dest = asm.getVar(executor.names[i]);
                                 if(dest != null && (!dest.constant || unit)){
-                                    dest.value = var.isobj ? var.objval : var.numval;
+                                    dest.value = executor.value(i);
                                 }
                             }
                         }
@@ -415,11 +414,16 @@ public class LogicBlock extends Block{
 
                 if(accumulator > maxInstructionScale * instructionsPerTick) accumulator = maxInstructionScale * instructionsPerTick;
 
-                for(int i = 0; i < (int)accumulator; i++){
-                    if(executor.initialized()){
-                        executor.runOnce();
-                    }
-                    accumulator --;
+                //at most half of the cap runs in one tick, so lag spikes do not multiply the work of every processor
+                int budget = (int)Math.min(accumulator, maxInstructionScale * instructionsPerTick / 2f);
+
+                if(budget > 0){
+                    long start = Time.nanos();
+                    executor.run(budget);
+                    executor.nanos += Time.timeSinceNanos(start);
+
+                    //instructions skipped by yielding are used up as well
+                    accumulator -= budget;
                 }
             }
         }
@@ -509,18 +513,19 @@ public class LogicBlock extends Block{
             write.b(compressed);
 
             //write only the non-constant variables
-            int count = Structs.count(executor.vars, v -> !v.constant);
+            int count = 0;
+            for(int i = 0; i < executor.names.length; i++){
+                if(!executor.constant(i)) count++;
+            }
 
             write.i(count);
-            for(int i = 0; i < executor.vars.length; i++){
-                Var v = executor.vars[i];
-
-                if(v.constant) continue;
+            for(int i = 0; i < executor.names.length; i++){
+                if(executor.constant(i)) continue;
 
                 //write the name and the object value
-                write.str(v.name);
+                write.str(executor.names[i]);
 
-                Object value = v.isobj ? v.objval : v.numval;
+                Object value = executor.value(i);
                 if(value instanceof Unit) value = null; //do not save units.
                 TypeIO.writeObject(write, value);
             }
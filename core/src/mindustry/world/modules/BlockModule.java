@@ -4,6 +4,9 @@ import arc.util.io.*;
 
 /** A class that represents compartmentalized tile entity state. */
 public abstract class BlockModule{
+    /** Whether this module has changed since its building was last written to a block snapshot. */
+    public boolean dirty = true;
+
     public abstract void write(Writes write);
 
     public void read(Reads read, boolean legacy){
@@ -72,6 +72,7 @@ public class LiquidModule extends BlockModule{
         liquids[liquid.id] = amount;
         total = amount;
         current = liquid;
+        dirty = true;
     }
 
     public float currentAmount(){
@@ -85,12 +86,14 @@ public class LiquidModule extends BlockModule{
     public void clear(){
         total = 0;
         Arrays.fill(liquids, 0);
+        dirty = true;
     }
 
     public void add(Liquid liquid, float amount){
         liquids[liquid.id] += amount;
         total += amount;
         current = liquid;
+        dirty = true;
 
         if(flow != null){
             lastAdded += Math.max(amount, 0);
@@ -9,12 +9,14 @@ import arc.util.CommandHandler.*;
 import arc.util.Timer.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
+import mindustry.ai.*;
 import mindustry.core.GameState.*;
 import mindustry.core.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
+import mindustry.logic.*;
 import mindustry.maps.Map;
 import mindustry.maps.*;
 import mindustry.maps.Maps.*;
@@ -23,6 +25,8 @@ import mindustry.net.Administration.*;
 import mindustry.net.Packets.*;
 import mindustry.net.*;
 import mindustry.type.*;
+import mindustry.world.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
 
 import java.io.*;
 import java.net.*;
@@ -328,6 +332,7 @@ public class ServerControl implements ApplicationListener{
                 logic.play();
 
                 info("Map loaded.");
+                info("Load stages:\n@", world.loadPipeline.report());
 
                 netServer.openServer();
             }catch(MapException e){
@@ -371,6 +376,7 @@ public class ServerControl implements ApplicationListener{
                 }
 
                 info("  @ FPS, @ MB used.", Core.graphics.getFramesPerSecond(), Core.app.getJavaHeap() / 1024 / 1024);
+                info("  Team stats: @ms per tick.", Strings.fixed(state.teams.lastStatsNanos / 1000000f, 3));
 
                 if(Groups.player.size() > 0){
                     info("  Players: @", Groups.player.size());
@@ -805,6 +811,94 @@ public class ServerControl implements ApplicationListener{
             }
         });
 
+        handler.register("syncstats", "Display network sync statistics for entities, players and blocks.", arg -> {
+            info("Snapshot culling: @ / Encoding: @", Config.snapshotCulling.bool() ? "on" : "off", Config.deltaSnapshots.bool() ? "per-player delta" : "shared");
+            info("Last sync tick: @us serializing, @us compressing", netServer.lastSerializeNanos / 1000, netServer.lastCompressNanos / 1000);
+
+            if(Groups.player.size() == 0){
+                info("No players are currently in the server.");
+            }else{
+                info("Players: @", Groups.player.size());
+                for(Player user : Groups.player){
+                    if(user.con == null) continue;
+                    NetConnection con = user.con;
+                    info(" &lm @ / @ entities last snapshot / @ avg / @ known", user.name, con.lastEntitiesSynced,
+                        con.snapshotsSent == 0 ? 0 : con.totalEntitiesSynced / con.snapshotsSent, con.syncedEntities.size);
+                    info("   inbound: @ handled / @ queued / @us", con.lastPacketsHandled, con.lastQueueDepth, con.lastDrainNanos / 1000);
+                }
+            }
+
+            long[] bytes = netServer.blockSyncBytes;
+            Seq<Block> synced = content.blocks().select(b -> b.id < bytes.length && bytes[b.id] > 0);
+            if(synced.any()){
+                synced.sort((a, b) -> Long.compare(bytes[b.id], bytes[a.id]));
+                info("Block snapshot data sent:");
+                for(int i = 0; i < Math.min(synced.size, 10); i++){
+                    Block block = synced.get(i);
+                    info("  @: @ KB", block.name, bytes[block.id] / 1024);
+                }
+            }
+        });
+
+        handler.register("pathstats", "Display flow field statistics for the pathfinder.", arg -> {
+            if(!state.is(State.playing)){
+                err("Not hosting. Host a game first.");
+                return;
+            }
+
+            Seq<Pathfinder.Flowfield> fields = pathfinder.getFields();
+            info("Flow fields: @ / Threads: @", fields.size, Math.max(Config.pathfinderThreads.num(), 1));
+            for(Pathfinder.Flowfield field : fields){
+                info("  @ [@] cost @: @ frontier / @ms to converge / @us waited", field.getClass().getSimpleName(), field.team().name, field.costType(),
+                    field.frontierSize, field.convergeNanos / 1000000, field.waitNanos / 1000);
+                info("    last repair: @ tiles in @us", field.repairSize, field.repairNanos / 1000);
+            }
+        });
+
+        handler.register("logicstats", "[amount/reset]", "Display the logic processors that took the most time to run since the last reset.", arg -> {
+            if(!state.is(State.playing)){
+                err("Not hosting. Host a game first.");
+                return;
+            }
+
+            Seq<LogicBuild> processors = new Seq<>();
+            Groups.build.each(b -> {
+                if(b instanceof LogicBuild l) processors.add(l);
+            });
+
+            if(arg.length > 0 && arg[0].equals("reset")){
+                processors.each(p -> p.executor.resetProfile());
+                info("Reset the counters of @ processors.", processors.size);
+                return;
+            }
+
+            if(arg.length > 0 && !Strings.canParseInt(arg[0])){
+                err("Amount must be a number.");
+                return;
+            }
+
+            int amount = arg.length > 0 ? Integer.parseInt(arg[0]) : 10;
+            processors.sort(p -> -p.executor.nanos);
+
+            info("Processors: @ / @ms total", processors.size, processors.sumf(p -> p.executor.nanos / 1000000f));
+            for(int i = 0; i < Math.min(amount, processors.size); i++){
+                LogicBuild build = processors.get(i);
+                LExecutor exec = build.executor;
+                float seconds = Math.max(Time.timeSinceMillis(exec.profileStart) / 1000f, 0.001f);
+
+                info("  @ at (@, @) [@]: @ms / @us per second / @ instructions / @ expensive", build.block.name, build.tileX(), build.tileY(), build.team.name,
+                    exec.nanos / 1000000, (int)(exec.nanos / 1000 / seconds), exec.instructionsRun, exec.expensiveHits());
+
+                ObjectIntMap<Class<?>> histogram = exec.histogram();
+                Seq<Class<?>> types = new Seq<>();
+                for(var entry : histogram){
+                    types.add(entry.key);
+                }
+                types.sort(t -> -histogram.get(t, 0));
+                info("    @", types.toString(", ", t -> t.getSimpleName() + ": " + histogram.get(t, 0)));
+            }
+        });
+
         handler.register("runwave", "Trigger the next wave.", arg -> {
             if(!state.is(State.playing)){
                 err("Not hosting. Host a game first.");
@@ -832,6 +926,7 @@ public class ServerControl implements ApplicationListener{
                     SaveIO.load(file);
                     state.rules.sector = null;
                     info("Save loaded.");
+                    info("Load stages:\n@", world.loadPipeline.report());
                     state.set(State.playing);
                     netServer.openServer();
                 }catch(Throwable t){
@@ -5,23 +5,37 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.io.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
 import mindustry.*;
+import mindustry.ai.*;
+import mindustry.async.*;
+import mindustry.async.PhysicsProcess.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
+import mindustry.async.TargetingProcess.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.core.GameState.*;
 import mindustry.ctype.*;
+import mindustry.entities.*;
 import mindustry.entities.units.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
+import mindustry.logic.*;
 import mindustry.maps.*;
+import mindustry.net.ConnectionTable;
 import mindustry.net.Net;
+import mindustry.net.SyncBaseline;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.meta.*;
 import org.junit.jupiter.api.*;
 
+import java.nio.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -235,6 +249,69 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void syncDelta(){
+        Unit unit = UnitTypes.dagger.create(Team.sharded);
+        unit.set(40f, 60f);
+        unit.rotation = 45f;
+        unit.health = 55f;
+        unit.ammo = 3f;
+
+        Unit copy = UnitTypes.dagger.create(Team.crux);
+        SyncBaseline baseline = new SyncBaseline();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        //a fresh baseline sends every field
+        unit.writeSyncDelta(new Writes(new ByteBufferOutput(buffer)), baseline);
+        int fullSize = buffer.position();
+        buffer.position(0);
+        copy.readSyncDelta(new Reads(new ByteBufferInput(buffer)));
+        copy.snapSync();
+
+        assertEquals(fullSize, buffer.position());
+        assertEquals(Team.sharded, copy.team);
+        assertEquals(unit.type, copy.type);
+        assertEquals(unit.x, copy.x);
+        assertEquals(unit.y, copy.y);
+        assertEquals(unit.rotation, copy.rotation);
+        assertEquals(unit.health, copy.health);
+        assertEquals(unit.ammo, copy.ammo);
+
+        //against the updated baseline, only changed fields are sent; the receiver keeps its values for the rest
+        unit.health = 20f;
+        unit.x = 80f;
+        copy.ammo = -1f;
+
+        buffer.clear();
+        unit.writeSyncDelta(new Writes(new ByteBufferOutput(buffer)), baseline);
+        int deltaSize = buffer.position();
+        buffer.position(0);
+        copy.readSyncDelta(new Reads(new ByteBufferInput(buffer)));
+        copy.snapSync();
+
+        assertEquals(deltaSize, buffer.position());
+        assertTrue(deltaSize < fullSize, "Delta of " + deltaSize + " bytes is not smaller than the full sync of " + fullSize + " bytes.");
+        assertEquals(20f, copy.health);
+        assertEquals(80f, copy.x);
+        assertEquals(unit.y, copy.y);
+        assertEquals(unit.rotation, copy.rotation);
+        assertEquals(-1f, copy.ammo, "Unchanged field was sent again.");
+
+        //nothing changed, so only untracked fields are sent
+        buffer.clear();
+        unit.writeSyncDelta(new Writes(new ByteBufferOutput(buffer)), baseline);
+        assertTrue(buffer.position() < deltaSize);
+
+        //an invalidated baseline sends everything again
+        baseline.invalid = true;
+        buffer.clear();
+        unit.writeSyncDelta(new Writes(new ByteBufferOutput(buffer)), baseline);
+        assertEquals(fullSize, buffer.position());
+        buffer.position(0);
+        copy.readSyncDelta(new Reads(new ByteBufferInput(buffer)));
+        assertEquals(unit.ammo, copy.ammo);
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
@@ -427,6 +504,912 @@ public class ApplicationTests{
         assertNotEquals(0, itemsa[0]);
     }
 
+    @Test
+    void connectionLookupBench(){
+        int lookups = 2000000;
+
+        for(int amount : new int[]{10, 50, 200}){
+            Rand rand = new Rand(amount);
+            int[] ids = new int[amount];
+            String[] values = new String[amount];
+            ConnectionTable<String> table = new ConnectionTable<>();
+            ConcurrentHashMap<Integer, String> map = new ConcurrentHashMap<>();
+
+            //connection IDs only increase, so a server that has been up for a while sees IDs far past the boxing cache
+            for(int i = 0; i < amount; i++){
+                ids[i] = 5000 + i * 3 + rand.random(2);
+                values[i] = "con" + i;
+                table.put(ids[i], values[i]);
+                map.put(ids[i], values[i]);
+            }
+
+            int[] queries = new int[lookups];
+            for(int i = 0; i < lookups; i++){
+                queries[i] = ids[rand.random(amount - 1)];
+            }
+
+            int[] found = new int[3];
+
+            Time.mark();
+            for(int query : queries){
+                for(int i = 0; i < amount; i++){
+                    if(ids[i] == query){
+                        if(values[i] != null) found[0]++;
+                        break;
+                    }
+                }
+            }
+            float scanTime = Time.elapsed();
+
+            Time.mark();
+            for(int query : queries){
+                if(map.get(query) != null) found[1]++;
+            }
+            float mapTime = Time.elapsed();
+
+            Time.mark();
+            for(int query : queries){
+                if(table.get(query) != null) found[2]++;
+            }
+            float tableTime = Time.elapsed();
+
+            Log.info("@ connections: list scan @ms / boxed map @ms / table @ms for @ lookups", amount, scanTime, mapTime, tableTime, lookups);
+
+            assertEquals(lookups, found[0]);
+            assertEquals(lookups, found[1]);
+            assertEquals(lookups, found[2]);
+
+            for(int i = 0; i < amount; i++){
+                assertSame(values[i], table.get(ids[i]));
+            }
+            assertNull(table.get(4999));
+
+            //removing only matches the expected value
+            table.remove(ids[0], "other");
+            assertSame(values[0], table.get(ids[0]));
+            table.remove(ids[0], values[0]);
+            assertNull(table.get(ids[0]));
+            assertSame(values[amount - 1], table.get(ids[amount - 1]));
+            assertEquals(amount - 1, table.size());
+        }
+    }
+
+    @Test
+    void pathfinderBench(){
+        int size = 500;
+        Tiles tiles = world.resize(size, size);
+
+        world.beginMapLoad();
+        tiles.fill();
+
+        //scatter walls so the field has to route around obstacles
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                if((x * 31 + y * 17) % 23 == 0){
+                    tiles.getn(x, y).setBlock(Blocks.stoneWall);
+                }
+            }
+        }
+
+        tiles.getn(size / 2, size / 2).setBlock(Blocks.coreShard, state.rules.defaultTeam, 0);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memory = runtime.totalMemory() - runtime.freeMemory();
+
+        //loading the world computes the ground field of the wave team synchronously
+        world.endMapLoad();
+
+        Pathfinder.Flowfield field = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
+        long used = runtime.totalMemory() - runtime.freeMemory() - memory;
+
+        Log.info("@ms to compute a @x@ flow field, @ KB field data, ~@ KB allocated", field.convergeNanos / 1000000f, size, size,
+            (field.weights.length + field.searches.length) * 4 / 1024, used / 1024);
+
+        assertEquals(0, field.frontierSize);
+        assertEquals(0, field.weights[size / 2 + size / 2 * field.width]);
+        assertTrue(field.weights[1] > 0, "Edge of the map was not reached.");
+    }
+
+    @Test
+    void flowfieldRepair(){
+        resetWorld();
+        world.loadMap(testMap);
+
+        Tile spawn = spawner.getFirstSpawn();
+        assertNotNull(spawn);
+
+        //loading the world converges the ground field of the wave team
+        Pathfinder.Flowfield field = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
+        pathfinder.updateNow();
+
+        Seq<Tile> path = Seq.with(spawn);
+        Tile current = spawn;
+        while(path.size < 10000 && field.weights[current.x + current.y * field.width] > 0){
+            Tile next = pathfinder.getTargetTile(current, field);
+            if(next == current) break;
+            path.add(current = next);
+        }
+        assertTrue(path.size > 40, "Spawn does not reach the core.");
+
+        //changes are passed to the pathfinder directly, without going through tile change events
+        world.setGenerating(true);
+
+        //walls on the current path, and a team wall that enemies can break through
+        Tile blocked = path.get(10), detour = path.get(20);
+        blocked.setBlock(Blocks.stoneWall);
+        pathfinder.updateTile(blocked);
+        detour.setBlock(Blocks.copperWall, state.rules.defaultTeam);
+        pathfinder.updateTile(detour);
+
+        //a free tile next to the path gets walled in, so it becomes unreachable
+        Tile enclosed = null;
+        for(int i = 25; i < path.size && enclosed == null; i++){
+            for(Point2 offset : Geometry.d4){
+                Tile center = world.tile(path.get(i).x + offset.x * 3, path.get(i).y + offset.y * 3);
+                if(center != null && isFreeArea(center, path)){
+                    enclosed = center;
+                    break;
+                }
+            }
+        }
+        assertNotNull(enclosed, "No tile to enclose near the path.");
+
+        for(Point2 offset : Geometry.d8){
+            Tile wall = enclosed.nearby(offset);
+            wall.setBlock(Blocks.stoneWall);
+            pathfinder.updateTile(wall);
+        }
+
+        //several queued changes: each repair has to finish before the next one
+        pathfinder.updateNow();
+        assertTrue(field.repairSize > 0, "The field was not repaired locally.");
+        assertTrue(field.weights[enclosed.x + enclosed.y * field.width] < 0, "Enclosed tile is still reachable.");
+
+        //cost decreases: the team wall goes away, and so does a static wall next to the path
+        detour.setAir();
+        pathfinder.updateTile(detour);
+
+        Tile removed = null;
+        for(int i = 0; i < path.size && removed == null; i++){
+            for(Point2 offset : Geometry.d4){
+                Tile other = path.get(i).nearby(offset);
+                if(other != null && other != blocked && other.block().isStatic() && other.solid() && other.dst(enclosed) > tilesize * 3){
+                    removed = other;
+                    break;
+                }
+            }
+        }
+
+        if(removed != null){
+            removed.setAir();
+            pathfinder.updateTile(removed);
+        }
+
+        pathfinder.updateNow();
+        assertEquals(0, field.frontierSize);
+        int[] repaired = field.weights.clone();
+
+        //reloading the world computes a new field from scratch, with the same tiles
+        world.endMapLoad();
+        Pathfinder.Flowfield fresh = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
+        assertNotSame(field, fresh);
+
+        for(int i = 0; i < repaired.length; i++){
+            if(repaired[i] != fresh.weights[i]){
+                fail("Repaired weight at " + (i % fresh.width) + ", " + (i / fresh.width) + " is " + repaired[i] + ", but a full search gives " + fresh.weights[i]);
+            }
+        }
+    }
+
+    /** @return whether the tile and all 8 tiles around it are empty and not on the path. */
+    boolean isFreeArea(Tile center, Seq<Tile> path){
+        for(int dx = -1; dx <= 1; dx++){
+            for(int dy = -1; dy <= 1; dy++){
+                Tile other = center.nearby(dx, dy);
+                if(other == null || other.block() != Blocks.air || path.contains(other)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void hierarchicalPathBench(){
+        Astar.TileHueristic cost = t -> t.floor().isLiquid ? 10 : 1;
+        Boolf<Tile> passable = t -> !(t.block().isStatic() && t.solid());
+
+        for(String name : new String[]{"overgrowth", "planetaryTerminal", "mudFlats"}){
+            world.loadMap(maps.loadInternalMap(name));
+
+            Building core = state.rules.defaultTeam.core();
+            Tile spawn = spawner.getFirstSpawn();
+            if(core == null || spawn == null) continue;
+
+            Time.mark();
+            Seq<Tile> path = Astar.pathfind(spawn, core.tile, cost, passable).copy();
+            float astarTime = Time.elapsed();
+
+            Time.mark();
+            HierarchicalPathfinder graph = HierarchicalPathfinder.of(cost, passable);
+            graph.pathfind(spawn, core.tile);
+            float buildTime = Time.elapsed();
+
+            Time.mark();
+            Seq<Tile> result = graph.pathfind(spawn, core.tile);
+            float queryTime = Time.elapsed();
+
+            Log.info("@ (@x@): A* @ms for @ tiles / hierarchical @ms first, @ms cached for @ tiles", name, world.width(), world.height(),
+                astarTime, path.size, buildTime, queryTime, result.size);
+
+            assertEquals(path.isEmpty(), result.isEmpty());
+            if(result.any()){
+                assertEquals(core.tile, result.peek());
+            }
+        }
+    }
+
+    @Test
+    void spatialIndexBench(){
+        world.loadMap(testMap);
+        Rect bounds = world.getQuadBounds(new Rect());
+        int frames = 30;
+        float range = 80f;
+
+        for(int amount : new int[]{2000, 5000, 10000}){
+            Rand rand = new Rand(amount);
+            Seq<Unit> units = new Seq<>();
+            float[] origins = new float[amount * 2];
+            for(int i = 0; i < amount; i++){
+                units.add(UnitTypes.dagger.create(Team.sharded));
+                origins[i * 2] = rand.random(bounds.x, bounds.x + bounds.width);
+                origins[i * 2 + 1] = rand.random(bounds.y, bounds.y + bounds.height);
+            }
+
+            QuadTree<Unit> tree = new QuadTree<>(new Rect(bounds));
+            SpatialGrid<Unit> grid = new SpatialGrid<>(bounds);
+            int[] found = {0, 0};
+
+            Time.mark();
+            for(int f = 0; f < frames; f++){
+                moveUnits(units, origins, f);
+                tree.clear();
+                for(Unit unit : units){
+                    tree.insert(unit);
+                }
+                for(Unit unit : units){
+                    tree.intersect(unit.x - range, unit.y - range, range * 2f, range * 2f, other -> found[0]++);
+                }
+            }
+            float treeTime = Time.elapsed() / frames;
+
+            Time.mark();
+            for(int f = 0; f < frames; f++){
+                moveUnits(units, origins, f);
+                for(Unit unit : units){
+                    grid.update(unit);
+                }
+                for(Unit unit : units){
+                    grid.intersect(unit.x - range, unit.y - range, range * 2f, range * 2f, other -> found[1]++);
+                }
+            }
+            float gridTime = Time.elapsed() / frames;
+
+            Log.info("@ units: quadtree rebuild @ms / grid update @ms per frame", amount, treeTime, gridTime);
+            assertEquals(found[0], found[1], "Index query results differ from the quadtree.");
+        }
+    }
+
+    @Test
+    void unitQuery(){
+        world.loadMap(testMap);
+        Rand rand = new Rand(0);
+        for(int i = 0; i < 400; i++){
+            Unit unit = UnitTypes.dagger.create(i % 2 == 0 ? Team.sharded : Team.crux);
+            unit.set(rand.random(world.unitWidth()), rand.random(world.unitHeight()));
+            unit.add();
+        }
+        Groups.unit.updatePhysics();
+
+        Units.UnitQuery query = new Units.UnitQuery();
+        float x = world.unitWidth() / 2f, y = world.unitHeight() / 2f, range = 200f;
+
+        Unit closest = Units.closestEnemy(Team.sharded, x, y, range, u -> true);
+        assertEquals(closest, query.closestEnemy(Team.sharded, x, y, range, u -> true));
+
+        int found = query.nearestEnemies(Team.sharded, x, y, range, 5, u -> true);
+        assertTrue(found <= 5);
+        for(int i = 0; i < found; i++){
+            assertEquals(Team.crux, query.units.get(i).team);
+            assertTrue(i == 0 || query.costs[i - 1] <= query.costs[i], "Results are not sorted.");
+        }
+
+        int all = query.enemies(Team.sharded, x, y, range, Integer.MAX_VALUE, u -> true, Unit::dst2);
+        assertEquals(Groups.unit.count(u -> u.team == Team.crux && u.within(x, y, range + u.hitSize / 2f)), all);
+    }
+
+    @Test
+    void targetingProcess(){
+        world.loadMap(testMap);
+        Rand rand = new Rand(1);
+        for(int i = 0; i < 2000; i++){
+            Unit unit = (i % 3 == 0 ? UnitTypes.flare : UnitTypes.dagger).create(i % 2 == 0 ? Team.sharded : Team.crux);
+            unit.set(rand.random(world.unitWidth()), rand.random(world.unitHeight()));
+            unit.add();
+        }
+        Groups.unit.updatePhysics();
+
+        TargetingProcess process = new TargetingProcess();
+        //start running, so requests are queued instead of resolved immediately
+        process.begin();
+
+        Seq<TargetRequest> requests = new Seq<>();
+        for(int i = 0; i < 500; i++){
+            TargetRequest request = new TargetRequest();
+            request.set(i % 2 == 0 ? Team.sharded : Team.crux, rand.random(world.unitWidth()), rand.random(world.unitHeight()), 120f, i % 4 < 2, true, false);
+            process.submit(request);
+            requests.add(request);
+        }
+
+        assertFalse(requests.first().done, "Requests should be resolved on the next frame.");
+        process.begin();
+        Log.info("Resolved @ target requests in @us", process.lastRequests, process.lastNanos / 1000);
+
+        for(TargetRequest request : requests){
+            assertTrue(request.done);
+            assertEquals(Units.closestEnemy(request.team, request.x, request.y, request.range, u -> u.checkTarget(request.air, request.ground)), request.take());
+        }
+    }
+
+    @Test
+    void physicsBench(){
+        Rect bounds = new Rect(0, 0, 500 * tilesize, 500 * tilesize);
+        int amount = 10000, steps = 20;
+        Rand rand = new Rand(2);
+        float[] xs = new float[amount], ys = new float[amount];
+        for(int i = 0; i < amount; i++){
+            xs[i] = rand.random(bounds.width);
+            ys[i] = rand.random(bounds.height);
+        }
+
+        PhysicsWorld classic = new PhysicsWorld(bounds);
+        for(int i = 0; i < amount; i++){
+            PhysicsBody body = new PhysicsBody();
+            body.x = xs[i];
+            body.y = ys[i];
+            body.radius = 4f;
+            body.mass = 10f;
+            classic.add(body);
+        }
+
+        Time.mark();
+        for(int i = 0; i < steps; i++){
+            classic.update();
+        }
+        float classicTime = Time.elapsed() / steps;
+
+        float[][] results = new float[2][];
+        float gridTime = 0f;
+        for(int run = 0; run < 2; run++){
+            GridPhysicsWorld grid = new GridPhysicsWorld(bounds);
+            for(int i = 0; i < amount; i++){
+                grid.add(new PhysicRef(null, null));
+                grid.x[i] = xs[i];
+                grid.y[i] = ys[i];
+                grid.radius[i] = 4f;
+                grid.mass[i] = 10f;
+            }
+
+            Time.mark();
+            for(int i = 0; i < steps; i++){
+                grid.update();
+            }
+            gridTime = Time.elapsed() / steps;
+
+            results[run] = new float[amount];
+            System.arraycopy(grid.x, 0, results[run], 0, amount);
+            grid.dispose();
+        }
+
+        Log.info("@ bodies: default @ms / grid @ms per step", amount, classicTime, gridTime);
+        assertArrayEquals(results[0], results[1], "Grid physics are not deterministic.");
+    }
+
+    @Test
+    void sleepChurnBench(){
+        resetWorld();
+        int size = 150, amount = 20000, rounds = 5;
+        Tiles tiles = world.resize(size, size);
+
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        Seq<Building> builds = new Seq<>();
+        for(int i = 0; i < amount; i++){
+            Tile tile = tiles.geti(i);
+            tile.setBlock(Blocks.copperWall, Team.sharded);
+            builds.add(tile.build);
+        }
+
+        int before = Groups.build.size();
+
+        Time.mark();
+        for(int r = 0; r < rounds; r++){
+            for(Building build : builds){
+                for(int i = 0; i <= Building.timeToSleep; i++){
+                    build.sleep();
+                }
+            }
+
+            assertEquals(before - amount, Groups.build.size(), "Not all buildings went to sleep.");
+
+            for(Building build : builds){
+                build.noSleep();
+            }
+
+            assertEquals(before, Groups.build.size(), "Not all buildings woke up.");
+        }
+
+        Log.info("@ buildings: @ms per sleep/wake round", amount, Time.elapsed() / rounds);
+    }
+
+    @Test
+    void teamStats(){
+        resetWorld();
+        int size = 150, amount = 20000, frames = 100;
+        Tiles tiles = world.resize(size, size);
+
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        for(int i = 0; i < amount; i++){
+            tiles.geti(i).setBlock(Blocks.copperWall, Team.sharded);
+        }
+
+        Seq<Unit> units = new Seq<>();
+        for(int i = 0; i < 200; i++){
+            Unit unit = UnitTypes.dagger.spawn(Team.crux, i * tilesize, 20f);
+            units.add(unit);
+        }
+
+        state.teams.updateTeamStats();
+        assertEquals(amount, Team.sharded.data().buildingCount);
+        assertEquals(units.size, Team.crux.data().units.size);
+        assertEquals(units.size, Team.crux.data().unitCache(UnitTypes.dagger).size);
+        assertTrue(state.teams.present.contains(Team.sharded.data()));
+        assertFalse(state.teams.present.contains(Team.green.data()));
+
+        //team changes of buildings and units
+        tiles.geti(0).setTeam(Team.green);
+        Unit changed = units.first();
+        changed.team(Team.green);
+        changed.update();
+
+        state.teams.updateTeamStats();
+        assertEquals(amount - 1, Team.sharded.data().buildingCount);
+        assertEquals(1, Team.green.data().buildingCount);
+        assertEquals(units.size - 1, Team.crux.data().units.size);
+        assertEquals(1, Team.green.data().countType(UnitTypes.dagger));
+        assertTrue(state.teams.present.contains(Team.green.data()));
+
+        for(Unit unit : units){
+            unit.remove();
+        }
+        tiles.geti(0).setAir();
+
+        state.teams.updateTeamStats();
+        assertEquals(0, Team.crux.data().units.size);
+        assertEquals(0, Team.crux.data().countType(UnitTypes.dagger));
+        assertFalse(state.teams.present.contains(Team.green.data()));
+
+        //nested payloads count towards the cap: a quad picks up a mega that carries a dagger
+        Teams.TeamData data = Team.crux.data();
+        Unit dagger = UnitTypes.dagger.spawn(Team.crux, 0f, 0f);
+        Unit mega = UnitTypes.mega.spawn(Team.crux, 0f, 0f);
+        Unit quad = UnitTypes.quad.spawn(Team.crux, 0f, 0f);
+        ((Payloadc)mega).pickup(dagger);
+        ((Payloadc)quad).pickup(mega);
+
+        assertEquals(1, data.units.size);
+        assertEquals(3, data.unitCount);
+        assertEquals(1, data.countType(UnitTypes.dagger));
+        assertEquals(1, data.countType(UnitTypes.mega));
+        assertEquals(1, data.countType(UnitTypes.quad));
+
+        quad.remove();
+        assertEquals(0, data.unitCount);
+        assertEquals(0, data.countType(UnitTypes.dagger));
+
+        quad.add();
+        assertEquals(3, data.unitCount);
+        assertEquals(1, data.countType(UnitTypes.dagger));
+
+        quad.remove();
+        assertEquals(0, data.unitCount);
+
+        //type changes move the unit to the lists of its new type
+        Unit swapped = UnitTypes.dagger.spawn(Team.crux, 0f, 0f);
+        swapped.setType(UnitTypes.mace);
+        swapped.update();
+        assertEquals(0, data.countType(UnitTypes.dagger));
+        assertEquals(0, data.unitCache(UnitTypes.dagger).size);
+        assertEquals(1, data.countType(UnitTypes.mace));
+        assertEquals(1, data.unitCache(UnitTypes.mace).size);
+
+        swapped.remove();
+        assertEquals(0, data.countType(UnitTypes.mace));
+        assertEquals(0, data.units.size);
+
+        long nanos = 0;
+        for(int i = 0; i < frames; i++){
+            state.teams.updateTeamStats();
+            nanos += state.teams.lastStatsNanos;
+        }
+
+        Log.info("@ buildings: @ms per team stats update", amount, nanos / frames / 1000000f);
+    }
+
+    @Test
+    void blockIndexBench(){
+        resetWorld();
+        int size = 200, queries = 5000;
+        float range = 12f * tilesize;
+        Tiles tiles = world.resize(size, size);
+
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        //dense base of large and small walls
+        for(int x = 0; x < size; x += 2){
+            for(int y = 0; y < size; y += 2){
+                if((x / 2 + y / 2) % 2 == 0){
+                    tiles.getn(x, y).setBlock(Blocks.titaniumWallLarge, Team.sharded);
+                }else{
+                    for(int i = 0; i < 4; i++){
+                        tiles.getn(x + i % 2, y + i / 2).setBlock(Blocks.copperWall, Team.sharded);
+                    }
+                }
+            }
+        }
+
+        float[] points = new float[queries * 2];
+        Rand rand = new Rand(1);
+        for(int i = 0; i < points.length; i++){
+            points[i] = rand.random(size * tilesize);
+        }
+
+        IntSet seen = new IntSet();
+        int[] counts = new int[2];
+
+        //reference: the previous tile scan
+        Time.mark();
+        for(int q = 0; q < queries; q++){
+            float wx = points[q * 2], wy = points[q * 2 + 1];
+            int tx = World.toTile(wx), ty = World.toTile(wy), tileRange = (int)(range / tilesize + 1);
+            seen.clear();
+
+            for(int x = -tileRange + tx; x <= tileRange + tx; x++){
+                for(int y = -tileRange + ty; y <= tileRange + ty; y++){
+                    if(!Mathf.within(x * tilesize, y * tilesize, wx, wy, range)) continue;
+                    Building other = world.build(x, y);
+                    if(other != null && other.team == Team.sharded && seen.add(other.pos())){
+                        counts[0]++;
+                    }
+                }
+            }
+        }
+        float scanTime = Time.elapsed();
+
+        Time.mark();
+        for(int q = 0; q < queries; q++){
+            indexer.eachBlock(Team.sharded, points[q * 2], points[q * 2 + 1], range, b -> true, b -> counts[1]++);
+        }
+        float indexTime = Time.elapsed();
+
+        Log.info("@ buildings, @ queries: tile scan @ms / quadrant index @ms", Team.sharded.data().buildingCount, queries, scanTime, indexTime);
+        assertEquals(counts[0], counts[1], "Indexed queries found different buildings than tile scans.");
+
+        //removals and team changes are reflected
+        Building removed = tiles.getn(0, 0).build;
+        tiles.getn(0, 0).setAir();
+        tiles.getn(2, 0).setTeam(Team.crux);
+        assertFalse(indexer.eachBlock(Team.sharded, 0f, 0f, tilesize, b -> b == removed || b.team != Team.sharded, b -> {}));
+        assertTrue(indexer.eachBlock(Team.crux, 2f * tilesize, 0f, 1f, b -> true, b -> {}));
+        assertNotNull(indexer.findTile(Team.crux, 0f, 0f, range, b -> true));
+        assertTrue(indexer.eachBlock(null, new Rect(0f, 0f, 4f * tilesize, 4f * tilesize), b -> b.team == Team.crux, b -> {}));
+    }
+
+    @Test
+    void tileStorageBench(){
+        Runtime runtime = Runtime.getRuntime();
+
+        for(String name : new String[]{"overgrowth", "planetaryTerminal", "mudFlats"}){
+            resetWorld();
+            System.gc();
+            long memory = runtime.totalMemory() - runtime.freeMemory();
+
+            Time.mark();
+            world.loadMap(maps.loadInternalMap(name));
+            float loadTime = Time.elapsed();
+
+            System.gc();
+            long used = runtime.totalMemory() - runtime.freeMemory() - memory;
+            Tiles tiles = world.tiles;
+            int total = tiles.width * tiles.height, passes = 20;
+
+            long sum = 0;
+
+            Time.mark();
+            for(int p = 0; p < passes; p++){
+                for(int i = 0; i < total; i++){
+                    Tile tile = tiles.geti(i);
+                    sum += tile.floorID() + tile.overlayID() + tile.blockID();
+                }
+            }
+            float scanTime = Time.elapsed() / passes;
+
+            Log.info("@ (@x@): loaded in @ms, ~@ MB / tile scan @ms", name, tiles.width, tiles.height, loadTime, used / 1024 / 1024, scanTime);
+            assertTrue(sum > 0);
+        }
+    }
+
+    @Test
+    void loadPipeline(){
+        for(String name : new String[]{"groundZero", "overgrowth", "planetaryTerminal"}){
+            resetWorld();
+
+            Time.mark();
+            world.loadMap(maps.loadInternalMap(name));
+            Log.info("@: loaded in @ms\n@", name, Time.elapsed(), world.loadPipeline.report());
+
+            assertTrue(indexer.getOrePositions(Items.copper).size() > 0, "Ores of " + name + " were not scanned.");
+            assertTrue(indexer.getAllied(state.rules.defaultTeam, BlockFlag.core).size() > 0, "Cores of " + name + " were not indexed.");
+        }
+    }
+
+    @Test
+    void logicCompilerBench(){
+        resetWorld();
+        Tiles tiles = world.resize(50, 50);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        for(int i = 0; i < 10; i++){
+            Unit unit = UnitTypes.poly.create(Team.sharded);
+            unit.set(i * 20f, i * 10f);
+            unit.add();
+        }
+
+        String sorter = String.join("\n",
+            "set a 5",
+            "set b 3",
+            "set c 9",
+            "set d 1",
+            "set i 0",
+            "jump 9 lessThanEq a b",
+            "set t a",
+            "set a b",
+            "set b t",
+            "jump 13 lessThanEq b c",
+            "set t b",
+            "set b c",
+            "set c t",
+            "jump 17 lessThanEq c d",
+            "set t c",
+            "set c d",
+            "set d t",
+            "op add i i 1",
+            "op mul seed i 7",
+            "op mod seed seed 13",
+            "op add d d seed",
+            "jump 5 lessThan i 50",
+            "end"
+        );
+
+        String control = String.join("\n",
+            "ubind @poly",
+            "jump 0 strictEqual @unit null",
+            "sensor x @unit @x",
+            "sensor y @unit @y",
+            "op sub dx x 80",
+            "op sub dy y 80",
+            "op len d dx dy",
+            "op angle a dx dy",
+            "jump 10 lessThan d 16",
+            "ucontrol move 80 80 0 0 0",
+            "op add n n 1"
+        );
+
+        int steps = 2_000_000;
+
+        for(String code : new String[]{sorter, control}){
+            LExecutor interpreted = loadLogic(code, false), compiled = loadLogic(code, true);
+
+            //a plain timing loop like the other benchmarks here, not a JMH harness; the numbers are only a rough comparison
+            //warm up both paths before measuring
+            for(int i = 0; i < steps / 10; i++){
+                interpreted.runOnce();
+                compiled.runOnce();
+            }
+
+            Time.mark();
+            for(int i = 0; i < steps; i++){
+                interpreted.runOnce();
+            }
+            float interpretTime = Time.elapsed();
+
+            Time.mark();
+            for(int i = 0; i < steps; i++){
+                compiled.runOnce();
+            }
+            float compileTime = Time.elapsed();
+
+            Log.info("@ instructions of @: interpreted @ms / compiled @ms", steps, code == sorter ? "sorter" : "unit control", interpretTime, compileTime);
+
+            for(int i = 0; i < interpreted.names.length; i++){
+                if(interpreted.constant(i)) continue;
+
+                assertEquals(interpreted.isobj(i), compiled.isobj(i), "Variable '" + interpreted.names[i] + "' has a different type when compiled.");
+                assertEquals(interpreted.value(i), compiled.value(i), "Variable '" + interpreted.names[i] + "' has a different value when compiled.");
+            }
+        }
+    }
+
+    @Test
+    void logicThroughputBench(){
+        String code = String.join("\n",
+            "set i 0",
+            "op add x x i",
+            "op mul y i 0.5",
+            "op max y y x",
+            "op sub z y true",
+            "set w z",
+            "op add i i 1",
+            "jump 1 lessThan i 1000",
+            "print x"
+        );
+
+        int processors = 100, ticks = 600, perTick = 100;
+        LExecutor[] executors = new LExecutor[processors];
+        for(int i = 0; i < processors; i++){
+            executors[i] = loadLogic(code, true);
+        }
+
+        Time.mark();
+        for(int t = 0; t < ticks; t++){
+            for(LExecutor exec : executors){
+                for(int i = 0; i < perTick; i++){
+                    exec.runOnce();
+                }
+            }
+        }
+        float time = Time.elapsed();
+
+        LExecutor[] batched = new LExecutor[processors];
+        for(int i = 0; i < processors; i++){
+            batched[i] = loadLogic(code, true);
+        }
+
+        Time.mark();
+        for(int t = 0; t < ticks; t++){
+            for(LExecutor exec : batched){
+                assertEquals(perTick, exec.run(perTick));
+            }
+        }
+        float batchTime = Time.elapsed();
+
+        long total = (long)processors * ticks * perTick;
+        Log.info("@ processors: @ instructions in @ms one at a time, @ms batched, @ million instructions/s per processor", processors, total, time, batchTime,
+            Strings.fixed(total / processors / (batchTime / 1000f) / 1000000f, 2));
+
+        //batches run the same instructions as single steps
+        for(int i = 0; i < executors[0].names.length; i++){
+            if(!executors[0].constant(i)) assertEquals(executors[0].value(i), batched[0].value(i));
+        }
+
+        //global constants are copied into the program instead of being looked up
+        LExecutor exec = executors[0];
+        int index = Seq.with(exec.names).indexOf("true");
+        assertTrue(index >= 0, "Global constant was not copied into the program.");
+        assertTrue(exec.constant(index));
+        assertEquals(1.0, exec.num(index));
+
+        //profiling counters add up
+        int histogramTotal = 0;
+        for(var entry : exec.histogram()){
+            histogramTotal += entry.value;
+        }
+        assertEquals((long)ticks * perTick, exec.instructionsRun);
+        assertEquals(exec.instructionsRun, histogramTotal);
+        assertEquals(0, exec.expensiveHits());
+    }
+
+    @Test
+    void logicOptimizer(){
+        String code = String.join("\n",
+            "set x 0",
+            "set x 5",
+            "op mul y 4 8",
+            "set i 0",
+            "op add i i 1",
+            "op add x x y",
+            "jump 4 lessThan i 10",
+            "jump 9 always",
+            "print \"unreachable\"",
+            "jump 10 always",
+            "op sub z x 1",
+            "end",
+            "print \"unreachable\""
+        );
+
+        LExecutor plain = loadLogic(code, false, false), optimized = loadLogic(code, true, true);
+        int plainSteps = runPass(plain), optimizedSteps = runPass(optimized);
+
+        Log.info("Logic optimizer: @ -> @ instructions, @ -> @ executed per pass", plain.instructions.length, optimized.instructions.length, plainSteps, optimizedSteps);
+        assertEquals(38, plainSteps);
+        assertEquals(26, optimizedSteps);
+
+        for(String name : new String[]{"x", "y", "z", "i"}){
+            int a = Seq.with(plain.names).indexOf(name), b = Seq.with(optimized.names).indexOf(name);
+            assertEquals(plain.num(a), optimized.num(b), "Variable '" + name + "' has a different value when optimized.");
+        }
+        assertEquals(324.0, optimized.num(Seq.with(optimized.names).indexOf("z")));
+
+        //programs that use the counter keep their layout
+        LExecutor counter = loadLogic(String.join("\n",
+            "set x 1",
+            "set x 2",
+            "op add @counter @counter 1",
+            "op add x 3 4",
+            "print x"
+        ), true, true);
+        assertEquals(5, counter.instructions.length);
+        runPass(counter);
+        assertEquals(2.0, counter.num(Seq.with(counter.names).indexOf("x")));
+    }
+
+    /** Runs a program until it reaches its end, and returns the amount of instructions that ran. */
+    int runPass(LExecutor exec){
+        int steps = 0;
+        do{
+            exec.runOnce();
+            steps++;
+        }while(exec.num(LExecutor.varCounter) < exec.instructions.length && steps < 100000);
+        return steps;
+    }
+
+    LExecutor loadLogic(String code, boolean compile, boolean optimize){
+        boolean last = LOptimizer.enabled;
+        LOptimizer.enabled = optimize;
+        try{
+            return loadLogic(code, compile);
+        }finally{
+            LOptimizer.enabled = last;
+        }
+    }
+
+    LExecutor loadLogic(String code, boolean compile){
+        boolean last = LCompiler.enabled;
+        LCompiler.enabled = compile;
+        try{
+            LExecutor exec = new LExecutor();
+            exec.team = Team.sharded;
+            exec.load(code, LExecutor.maxInstructions);
+            return exec;
+        }finally{
+            LCompiler.enabled = last;
+        }
+    }
+
+    void moveUnits(Seq<Unit> units, float[] origins, int frame){
+        for(int i = 0; i < units.size; i++){
+            units.get(i).set(origins[i * 2] + Mathf.sinDeg(frame * 6f + i) * 40f, origins[i * 2 + 1] + Mathf.cosDeg(frame * 6f + i) * 40f);
+        }
+    }
+
     @Test
     void load77Save(){
         resetWorld();